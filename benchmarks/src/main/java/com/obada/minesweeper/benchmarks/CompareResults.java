@@ -0,0 +1,96 @@
+package com.obada.minesweeper.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, usually from two commits, and
+ * fails when a benchmark got slower by more than the threshold and by
+ * more than the measurement error.
+ * <p>
+ * Usage: <code>CompareResults baseline.json candidate.json [threshold%]</code>
+ */
+public class CompareResults {
+    private record Score(String mode, double score, double error, String unit) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("Usage: CompareResults baseline.json candidate.json [threshold%]");
+            System.exit(2);
+        }
+
+        Map<String, Score> baseline = load(Path.of(args[0]));
+        Map<String, Score> candidate = load(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+
+        int regressions = 0;
+        for(var entry : candidate.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            Score after = entry.getValue();
+            if(before == null || !before.unit().equals(after.unit())) {
+                System.out.printf(Locale.ROOT, "%-90s %14s %14.3f %s%n",
+                        entry.getKey(), "new", after.score(), after.unit());
+                continue;
+            }
+
+            // average time gets worse upwards, throughput downwards
+            double change = (after.score() - before.score()) / before.score();
+            double worse = after.mode().equals("thrpt") ? -change : change;
+            boolean regression = worse > threshold
+                    && Math.abs(after.score() - before.score()) > before.error() + after.error();
+            if(regression) regressions++;
+
+            System.out.printf(Locale.ROOT, "%-90s %14.3f %14.3f %s %+7.1f%%%s%n",
+                    entry.getKey(), before.score(), after.score(), after.unit(),
+                    change * 100, regression ? "  REGRESSION" : "");
+        }
+
+        if(regressions > 0) {
+            System.out.println(regressions + " regression(s) above " + threshold * 100 + "%");
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> load(Path path) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        try(Reader reader = Files.newBufferedReader(path)) {
+            JsonArray runs = JsonParser.parseReader(reader).getAsJsonArray();
+            for(JsonElement element : runs) {
+                JsonObject run = element.getAsJsonObject();
+                JsonObject metric = run.getAsJsonObject("primaryMetric");
+                double error = metric.get("scoreError").isJsonPrimitive()
+                        && !Double.isNaN(metric.get("scoreError").getAsDouble())
+                        ? metric.get("scoreError").getAsDouble() : 0;
+                scores.put(key(run), new Score(
+                        run.get("mode").getAsString(),
+                        metric.get("score").getAsDouble(),
+                        error,
+                        metric.get("scoreUnit").getAsString()));
+            }
+        }
+        return scores;
+    }
+
+    private static String key(JsonObject run) {
+        StringBuilder key = new StringBuilder(run.get("benchmark").getAsString());
+        if(run.has("params")) {
+            Map<String, String> params = new TreeMap<>();
+            for(var param : run.getAsJsonObject("params").entrySet())
+                params.put(param.getKey(), param.getValue().getAsString());
+            key.append(params);
+        }
+        return key.toString();
+    }
+}
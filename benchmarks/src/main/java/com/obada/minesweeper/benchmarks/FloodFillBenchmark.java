@@ -0,0 +1,73 @@
+package com.obada.minesweeper.benchmarks;
+
+import com.obada.minesweeper.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flood fill worst cases: one reveal that opens an empty board, and a
+ * board walled into many small islands that each take their own fill.
+ * Both include resetting the board, which {@link #resetOnly()} measures
+ * on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FloodFillBenchmark {
+    private static final int ISLAND = 5;
+
+    @Param({"16", "100", "1000"})
+    int size;
+
+    private Board empty;
+    private Board islands;
+    private int[] walls;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        empty = new Board(size, size, 0);
+
+        int count = 0;
+        for(int y = 0; y < size; ++y)
+            for(int x = 0; x < size; ++x)
+                if(isWall(y, x)) count++;
+
+        islands = new Board(size, size, count);
+        walls = new int[count];
+        count = 0;
+        for(int y = 0; y < size; ++y)
+            for(int x = 0; x < size; ++x)
+                if(isWall(y, x))
+                    walls[count++] = islands.index(y, x);
+    }
+
+    private static boolean isWall(int y, int x) {
+        return y % ISLAND == 0 || x % ISLAND == 0;
+    }
+
+    @Benchmark
+    public int emptyBoard() {
+        empty.reset(new int[0]);
+        return empty.revealClearSection(size / 2, size / 2);
+    }
+
+    @Benchmark
+    public int checkerboardIslands() {
+        islands.reset(walls);
+        int revealed = 0;
+        for(int y = ISLAND / 2; y < size; y += ISLAND)
+            for(int x = ISLAND / 2; x < size; x += ISLAND)
+                revealed += islands.revealClearSection(y, x);
+        return revealed;
+    }
+
+    @Benchmark
+    public Board resetOnly() {
+        islands.reset(walls);
+        return islands;
+    }
+}
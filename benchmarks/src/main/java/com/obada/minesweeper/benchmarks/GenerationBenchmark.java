@@ -0,0 +1,64 @@
+package com.obada.minesweeper.benchmarks;
+
+import com.obada.minesweeper.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mine placement, which also computes the numbers, and the 3BV pass
+ * over a placed board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GenerationBenchmark {
+    @Param({"16", "100", "1000"})
+    int size;
+
+    @Param({"0.12", "0.20", "0.60"})
+    double density;
+
+    private Board board;
+    private int[] mineCells;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = new Board(size, size, (int) (size * size * density));
+        board.reset(42);
+
+        mineCells = new int[board.getMineNumber()];
+        int count = 0;
+        for(int y = 0; y < size; ++y)
+            for(int x = 0; x < size; ++x)
+                if(board.isMine(y, x))
+                    mineCells[count++] = board.index(y, x);
+    }
+
+    /**
+     * Seeded placement of a new board, numbers included.
+     */
+    @Benchmark
+    public Board placeMines() {
+        board.reset(++seed);
+        return board;
+    }
+
+    /**
+     * Number computation alone, for a fixed mine layout.
+     */
+    @Benchmark
+    public Board placeGivenMines() {
+        board.reset(mineCells);
+        return board;
+    }
+
+    @Benchmark
+    public int threeBV() {
+        return board.get3BV();
+    }
+}
@@ -0,0 +1,49 @@
+package com.obada.minesweeper.benchmarks;
+
+import com.obada.minesweeper.Board;
+import com.obada.minesweeper.Difficulty;
+import com.obada.minesweeper.GenerationMode;
+import com.obada.minesweeper.IStrategy;
+import com.obada.minesweeper.Solver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole games from reset to win or loss, the way the simulator plays them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PlayoutBenchmark {
+    @Param({"BEGINNER", "INTERMEDIATE", "EXPERT"})
+    Difficulty difficulty;
+
+    @Param({"solver", "random-safe"})
+    String strategyName;
+
+    private Board board;
+    private Solver solver;
+    private IStrategy strategy;
+    private SplittableRandom rand;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = new Board(difficulty.getWidth(), difficulty.getHeight(), difficulty.getMineNumber());
+        board.setGenerationMode(GenerationMode.FIRST_CLICK_SAFE);
+        solver = new Solver(board);
+        strategy = strategyName.equals("solver") ? IStrategy.SOLVER : IStrategy.RANDOM_SAFE;
+        rand = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public int playGame() {
+        board.reset(rand.nextLong());
+        solver.clear();
+        return strategy.play(board, solver, rand) + (board.isWon() ? 1 : 0);
+    }
+}
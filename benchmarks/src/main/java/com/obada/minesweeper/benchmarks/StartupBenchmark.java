@@ -0,0 +1,37 @@
+package com.obada.minesweeper.benchmarks;
+
+import com.obada.minesweeper.ResourceManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the resources, one shot per fresh JVM. What the first
+ * paint needs is ready as soon as the manager exists, while the real
+ * fonts and images keep decoding in the background; the second case
+ * waits for all of them, which is what startup used to block on.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10, jvmArgsAppend = "-Djava.awt.headless=true")
+public class StartupBenchmark {
+    private static final int CELL_SIZE = 30;
+
+    @Benchmark
+    public BufferedImage firstPaintReady() {
+        ResourceManager resources = ResourceManager.getInstance();
+        resources.getCellFont(CELL_SIZE);
+        return resources.getScaledImage(resources.getMineImage(), CELL_SIZE);
+    }
+
+    @Benchmark
+    public BufferedImage allResourcesLoaded() {
+        ResourceManager resources = ResourceManager.getInstance();
+        resources.awaitLoaded();
+        resources.getCellFont(CELL_SIZE);
+        return resources.getScaledImage(resources.getMineImage(), CELL_SIZE);
+    }
+}
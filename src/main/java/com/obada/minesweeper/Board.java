@@ -0,0 +1,1085 @@
+package com.obada.minesweeper;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Headless minesweeper engine. The whole grid lives in a single
+ * <code>byte[]</code>, one byte per cell, with the layers packed as bits:
+ * the low nibble holds the number of surrounding mines and the high
+ * bits mark mines, opened cells and flagged cells. Nothing in here
+ * touches AWT, so games can be simulated without a frame.
+ * <p>
+ * The grid is padded with a one cell border on every side. Border
+ * cells are never opened, so the neighbours of any real cell can be
+ * visited through the fixed {@link #neighbours} offsets without bounds
+ * checks. Cell indexes handed out by {@link #index(int, int)} are
+ * indexes into the padded array. Every {@link Topology} other than the
+ * square grid lists the neighbours of each cell in a table instead,
+ * which holds only real cells and needs no checks either. The loops
+ * over neighbours come in a square and a table version, picked once
+ * per call rather than once per cell.
+ * <p>
+ * Mines are drawn into a bitboard first and the numbers of the whole
+ * grid are then counted from it 64 cells at a time, see
+ * {@link #placeMines(long[])}.
+ * <p>
+ * Outside of {@link GenerationMode#CLASSIC} the mines are only placed
+ * by the first reveal, so a board is reproduced by its size, mine
+ * number, seed, mode and first revealed cell.
+ */
+public class Board {
+    static final int NUMBER_MASK = 0x0F;
+    static final int MINE        = 0x10;
+    static final int OPENED      = 0x20;
+    static final int FLAGGED     = 0x40;
+    static final int BORDER      = 0x80;
+
+    static final int[] dy = {-1, -1, 0, 1, 1,  1,  0, -1};
+    static final int[] dx = { 0,  1, 1, 1, 0, -1, -1, -1};
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Spreads the 8 bits of a byte over the low bits of 8 bytes, so 8
+     * cells of a bit plane are written with a single <code>long</code>.
+     */
+    private static final long[] SPREAD = new long[256];
+
+    static {
+        for(int b = 0; b < 256; ++b)
+            for(int k = 0; k < 8; ++k)
+                SPREAD[b] |= (long) (b >>> k & 1) << (k * 8);
+    }
+
+    private final int width;
+    private final int height;
+    private final int mineNumber;
+    private final int stride;
+    private final byte[] cells;
+    private final int[] neighbours;
+    private final Topology topology;
+    // the neighbour table of any topology but the square grid
+    private final int[] adjacencyStart;
+    private final int[] adjacency;
+    private GenerationMode generationMode = GenerationMode.CLASSIC;
+    private boolean generated = false;
+    private final SplittableRandom seeds = new SplittableRandom();
+    private long seed;
+    private SplittableRandom rand;
+    private int mineCounter;
+    private int revealedCells = 0;
+    private int[] revealBuffer = new int[0];
+    private int[] workBuffer = new int[64];
+    private final int[] around = new int[8];
+    private long[] marks;
+    private long[] mineBits;
+    private UndoHistory history;
+
+    public Board(int width, int height, int mineNumber) {
+        this(width, height, mineNumber, Topology.SQUARE);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the size or mine number is
+     *         invalid, or the board is too big for the topology.
+     */
+    public Board(int width, int height, int mineNumber, Topology topology) {
+        if(width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Invalid board size " + width + "x" + height);
+        if(mineNumber < 0 || mineNumber > width * height)
+            throw new IllegalArgumentException(mineNumber + " mines cant fit in a " + width + "x" + height + " grid");
+
+        this.width = width;
+        this.height = height;
+        this.mineNumber = mineNumber;
+        this.stride = width + 2;
+        this.cells = new byte[stride * (height + 2)];
+        this.mineCounter = mineNumber;
+
+        neighbours = new int[8];
+        for(int d = 0; d < 8; ++d)
+            neighbours[d] = dy[d] * stride + dx[d];
+
+        this.topology = topology;
+        Topology.Table table = topology.buildTable(this);
+        adjacencyStart = table == null ? null : table.start();
+        adjacency = table == null ? null : table.adjacency();
+    }
+
+    /**
+     * Clears every cell and places a fresh set of mines from a new
+     * random seed.
+     */
+    public void reset() {
+        reset(seeds.nextLong());
+    }
+
+    /**
+     * Clears every cell and places the mines derived from
+     * <code>seed</code>. The same size, mine number and seed always
+     * give the same board.
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        Arrays.fill(cells, (byte) 0);
+        markBorder();
+        mineCounter = mineNumber;
+        revealedCells = 0;
+        rand = new SplittableRandom(seed);
+        generated = false;
+        if(generationMode == GenerationMode.CLASSIC)
+            generate(-1);
+    }
+
+    /**
+     * Places the mines, keeping <code>safeCell</code> and its
+     * neighbourhood clear when there is room for it. No cell is kept
+     * clear for -1.
+     */
+    private void generate(int safeCell) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        generated = true;
+        // the no-guess generator plays on this board, that is no move
+        UndoHistory recording = history;
+        history = null;
+        drawMines(safeCell);
+        // a board the generator gives up on is still first-click safe
+        if(safeCell != -1 && generationMode == GenerationMode.NO_GUESS)
+            new NoGuessGenerator(this, rand).generate(safeCell);
+
+        history = recording;
+        if(Metrics.ENABLED)
+            Metrics.recordGeneration(start, width, height, mineNumber);
+    }
+
+    /**
+     * Draws a new set of mines from the board's random sequence, keeping
+     * <code>safeCell</code> and its neighbourhood clear when there is
+     * room for it, for the no-guess generator to start over with. Every
+     * cell is closed again.
+     */
+    void redrawMines(int safeCell) {
+        Arrays.fill(cells, (byte) 0);
+        markBorder();
+        mineCounter = mineNumber;
+        revealedCells = 0;
+        drawMines(safeCell);
+    }
+
+    private void drawMines(int safeCell) {
+        if(safeCell == -1) {
+            generateMines(-1, 0);
+        } else if(adjacency != null) {
+            generateMines(safeZone(safeCell));
+        } else {
+            int y = getCellY(safeCell);
+            int x = getCellX(safeCell);
+            int zoneHeight = Math.min(y + 1, height - 1) - Math.max(y - 1, 0) + 1;
+            int zoneWidth = Math.min(x + 1, width - 1) - Math.max(x - 1, 0) + 1;
+            if(mineNumber <= width * height - zoneHeight * zoneWidth)
+                generateMines(index(Math.max(y - 1, 0), Math.max(x - 1, 0)), zoneWidth | zoneHeight << 16);
+            else if(mineNumber < width * height)
+                generateMines(safeCell, 1 | 1 << 16);
+            else
+                generateMines(-1, 0);
+        }
+    }
+
+    /**
+     * Clears every cell and places the mines on exactly the given
+     * cells, whatever the generation mode.
+     *
+     * @param mineCells Cell indexes as returned by {@link #index(int, int)},
+     *                  as many as the board has mines.
+     */
+    public void reset(int[] mineCells) {
+        if(mineCells.length != mineNumber)
+            throw new IllegalArgumentException("Expected " + mineNumber + " mines, got " + mineCells.length);
+
+        Arrays.fill(cells, (byte) 0);
+        markBorder();
+        mineCounter = mineNumber;
+        revealedCells = 0;
+        generated = true;
+        for(int i : mineCells) {
+            if((cells[i] & (MINE | BORDER)) != 0)
+                throw new IllegalArgumentException("Invalid mine cell " + i);
+            if(adjacency == null)
+                placeMineSquare(i);
+            else
+                placeMineTable(i);
+        }
+    }
+
+    /**
+     * Writes the mine, opened and flagged layers of the board as bitsets
+     * over the cells in row-major order, each
+     * <code>(width * height + 63) / 64</code> words long, in one pass.
+     */
+    void packLayers(LongBuffer mines, LongBuffer opened, LongBuffer flagged) {
+        long mineWord = 0, openedWord = 0, flaggedWord = 0;
+        int position = 0;
+        for(int y = 0; y < height; ++y) {
+            for(int i = index(y, 0), end = i + width; i < end; ++i) {
+                long bit = 1L << position;
+                int cell = cells[i];
+                if((cell & MINE) != 0) mineWord |= bit;
+                if((cell & OPENED) != 0) openedWord |= bit;
+                if((cell & FLAGGED) != 0) flaggedWord |= bit;
+                if(++position == 64) {
+                    mines.put(mineWord);
+                    opened.put(openedWord);
+                    flagged.put(flaggedWord);
+                    mineWord = openedWord = flaggedWord = 0;
+                    position = 0;
+                }
+            }
+        }
+        if(position != 0) {
+            mines.put(mineWord);
+            opened.put(openedWord);
+            flagged.put(flaggedWord);
+        }
+    }
+
+    /**
+     * Restores a board written with
+     * {@link #packLayers(LongBuffer, LongBuffer, LongBuffer)}.
+     * The numbers, the mine counter and the revealed cell count are
+     * rebuilt from the layers.
+     *
+     * @param generated Whether the mines have been placed; the mine
+     *                  layer must then hold exactly the mine number.
+     */
+    void restore(long seed, boolean generated, LongBuffer mines, LongBuffer opened, LongBuffer flagged) {
+        this.seed = seed;
+        Arrays.fill(cells, (byte) 0);
+        markBorder();
+        rand = new SplittableRandom(seed);
+        this.generated = generated;
+
+        int total = width * height;
+        long[] mineWords = new long[(total + 63) >>> 6];
+        mines.get(mineWords);
+        int placed = 0;
+        for(long word : mineWords)
+            placed += Long.bitCount(word);
+        if(generated ? placed != mineNumber : placed != 0)
+            throw new IllegalArgumentException("Expected " + (generated ? mineNumber : 0) + " mines, got " + placed);
+        if((total & 63) != 0 && mineWords[mineWords.length - 1] >>> (total & 63) != 0)
+            throw new IllegalArgumentException("Mine outside the board");
+        placeMines(mineWords);
+
+        int flags = 0;
+        revealedCells = 0;
+        for(int p = 0; p < total; p += 64) {
+            long mineWord = mineWords[p >>> 6];
+            long openedWord = opened.get();
+            long flaggedWord = flagged.get();
+            for(long bits = openedWord | flaggedWord; bits != 0; bits &= bits - 1) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                if(p + bit >= total)
+                    throw new IllegalArgumentException("Cell " + (p + bit) + " is outside the board");
+
+                int i = index((p + bit) / width, (p + bit) % width);
+                if((openedWord >>> bit & 1) != 0) {
+                    cells[i] |= OPENED;
+                    if((mineWord >>> bit & 1) == 0)
+                        revealedCells++;
+                } else {
+                    cells[i] |= FLAGGED;
+                    flags++;
+                }
+            }
+        }
+        mineCounter = mineNumber - flags;
+    }
+
+    private void markBorder() {
+        int last = cells.length - stride;
+        for(int x = 0; x < stride; ++x) {
+            cells[x] = (byte) BORDER;
+            cells[last + x] = (byte) BORDER;
+        }
+        for(int i = stride; i < last; i += stride) {
+            cells[i] = (byte) BORDER;
+            cells[i + stride - 1] = (byte) BORDER;
+        }
+    }
+
+    /**
+     * Places the mines with Floyd's sampling algorithm: every step
+     * draws one position, and on a collision takes the last position of
+     * the current range instead, which cannot have been drawn yet. The
+     * mines are drawn into a bitset over the cells in row-major order,
+     * which doubles as the sample set, so placement takes exactly
+     * <code>mineNumber</code> draws whatever the density.
+     * <p>
+     * A rectangle of cells can be left out of the draw. Positions then
+     * run over the remaining cells only and are shifted past the rows
+     * of the rectangle when mapped back to the grid.
+     *
+     * @param zoneStart The top left cell of the excluded rectangle, or -1.
+     * @param zoneSize  The rectangle width in the low 16 bits and its
+     *                  height in the high 16 bits.
+     */
+    private void generateMines(int zoneStart, int zoneSize) {
+        int zoneWidth = zoneSize & 0xFFFF;
+        int zoneHeight = zoneSize >>> 16;
+        int zoneFirst = zoneStart == -1 ? Integer.MAX_VALUE
+                : getCellY(zoneStart) * width + getCellX(zoneStart);
+
+        clearMineBits();
+        int area = width * height - zoneWidth * zoneHeight;
+        for(int j = area - mineNumber; j < area; ++j) {
+            int p = toPosition(rand.nextInt(j + 1), zoneFirst, zoneWidth, zoneHeight);
+            if((mineBits[p >>> 6] & 1L << p) != 0)
+                p = toPosition(j, zoneFirst, zoneWidth, zoneHeight);
+
+            mineBits[p >>> 6] |= 1L << p;
+        }
+        placeMineBits();
+    }
+
+    /**
+     * Like {@link #generateMines(int, int)}, for any set of cells to
+     * keep clear.
+     *
+     * @param zone The excluded positions <code>y * width + x</code>, sorted.
+     */
+    private void generateMines(int[] zone) {
+        clearMineBits();
+        int area = width * height - zone.length;
+        for(int j = area - mineNumber; j < area; ++j) {
+            int p = toPosition(rand.nextInt(j + 1), zone);
+            if((mineBits[p >>> 6] & 1L << p) != 0)
+                p = toPosition(j, zone);
+
+            mineBits[p >>> 6] |= 1L << p;
+        }
+        placeMineBits();
+    }
+
+    /**
+     * @return the sorted positions to keep clear around the first click
+     *         on a topology with a neighbour table: the cell and its
+     *         neighbours when there is room, else the cell alone.
+     */
+    private int[] safeZone(int safeCell) {
+        int from = adjacencyStart[safeCell];
+        int count = adjacencyStart[safeCell + 1] - from;
+        int area = width * height;
+        int[] zone;
+        if(mineNumber <= area - count - 1) {
+            zone = new int[count + 1];
+            for(int k = 0; k < count; ++k)
+                zone[k] = getCellY(adjacency[from + k]) * width + getCellX(adjacency[from + k]);
+            zone[count] = getCellY(safeCell) * width + getCellX(safeCell);
+        } else if(mineNumber < area) {
+            zone = new int[] {getCellY(safeCell) * width + getCellX(safeCell)};
+        } else {
+            zone = new int[0];
+        }
+        Arrays.sort(zone);
+        return zone;
+    }
+
+    private void clearMineBits() {
+        int words = (width * height + 63) >>> 6;
+        if(mineBits == null || mineBits.length != words)
+            mineBits = new long[words];
+        else
+            Arrays.fill(mineBits, 0);
+    }
+
+    private void placeMineBits() {
+        // placing rewrites whole cells, so flags set before the first click are put back
+        int[] flags = mineCounter < mineNumber ? collectFlags() : null;
+        placeMines(mineBits);
+        if(flags != null)
+            for(int i : flags)
+                cells[i] |= FLAGGED;
+    }
+
+    private int[] collectFlags() {
+        int[] flags = new int[mineNumber - mineCounter];
+        int count = 0;
+        for(int i = 0; i < cells.length && count < flags.length; ++i)
+            if((cells[i] & FLAGGED) != 0)
+                flags[count++] = i;
+        return flags;
+    }
+
+    private int toPosition(int position, int zoneFirst, int zoneWidth, int zoneHeight) {
+        for(int row = 0; row < zoneHeight && position >= zoneFirst + row * width; ++row)
+            position += zoneWidth;
+        return position;
+    }
+
+    private static int toPosition(int position, int[] zone) {
+        for(int excluded : zone) {
+            if(excluded > position) break;
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Writes the mines of a row-major bitset, as produced by
+     * {@link #packLayers(LongBuffer, LongBuffer, LongBuffer)}, into the
+     * cells of a cleared grid together with every number.
+     * <p>
+     * The numbers are counted a row at a time, 64 cells per word, with
+     * a bit-sliced adder: the row above and the row below are each
+     * summed with their shifted copies into two bit planes, the row
+     * itself into two more, and the three 2-bit sums are added into the
+     * four planes of the final count. The planes are then spread into
+     * the cell bytes 8 cells per write.
+     */
+    private void placeMines(long[] mines) {
+        if(adjacency != null) {
+            for(int w = 0; w < mines.length; ++w)
+                for(long bits = mines[w]; bits != 0; bits &= bits - 1) {
+                    int p = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    placeMineTable(index(p / width, p % width));
+                }
+            return;
+        }
+
+        int rowWords = (width + 63) >>> 6;
+        long[] above = new long[rowWords];
+        long[] current = new long[rowWords];
+        long[] below = new long[rowWords];
+        readRow(mines, 0, current);
+
+        for(int y = 0; y < height; ++y) {
+            if(y + 1 < height)
+                readRow(mines, y + 1, below);
+            else
+                Arrays.fill(below, 0);
+
+            int base = index(y, 0);
+            for(int w = 0; w < rowWords; ++w)
+                countWord(above, current, below, w, cells, base + (w << 6), Math.min(64, width - (w << 6)));
+
+            long[] spare = above;
+            above = current;
+            current = below;
+            below = spare;
+        }
+        countBorder();
+    }
+
+    /**
+     * Counts the mines around the 64 cells of word <code>w</code> of a
+     * row, given the words of the row and of the rows above and below,
+     * and writes the first <code>count</code> of them to
+     * <code>out</code> with their mine bits. The words next to
+     * <code>w</code> supply the cells just past its ends.
+     */
+    static void countWord(long[] above, long[] current, long[] below, int w, byte[] out, int offset, int count) {
+        int words = current.length;
+        long u = above[w], c = current[w], d = below[w];
+        long uw = u << 1 | (w > 0 ? above[w - 1] >>> 63 : 0);
+        long ue = u >>> 1 | (w + 1 < words ? above[w + 1] << 63 : 0);
+        long cw = c << 1 | (w > 0 ? current[w - 1] >>> 63 : 0);
+        long ce = c >>> 1 | (w + 1 < words ? current[w + 1] << 63 : 0);
+        long dw = d << 1 | (w > 0 ? below[w - 1] >>> 63 : 0);
+        long de = d >>> 1 | (w + 1 < words ? below[w + 1] << 63 : 0);
+
+        long a0 = uw ^ u ^ ue, a1 = uw & u | ue & (uw ^ u);
+        long b0 = dw ^ d ^ de, b1 = dw & d | de & (dw ^ d);
+        long m0 = cw ^ ce, m1 = cw & ce;
+
+        long n0 = a0 ^ b0 ^ m0;
+        long carry = a0 & b0 | m0 & (a0 ^ b0);
+        long t = a1 ^ b1 ^ m1;
+        long four = a1 & b1 | m1 & (a1 ^ b1);
+        long n1 = t ^ carry;
+        long twos = t & carry;
+        long n2 = four ^ twos;
+        long n3 = four & twos;
+
+        int k = 0;
+        for(; k + 8 <= count; k += 8)
+            LONGS.set(out, offset + k, spread(c, n0, n1, n2, n3, k));
+        for(; k < count; ++k)
+            out[offset + k] = (byte) ((c >>> k & 1) << 4 | (n3 >>> k & 1) << 3
+                    | (n2 >>> k & 1) << 2 | (n1 >>> k & 1) << 1 | n0 >>> k & 1);
+    }
+
+    private static long spread(long mines, long n0, long n1, long n2, long n3, int shift) {
+        return SPREAD[(int) (mines >>> shift) & 0xFF] << 4
+                | SPREAD[(int) (n3 >>> shift) & 0xFF] << 3
+                | SPREAD[(int) (n2 >>> shift) & 0xFF] << 2
+                | SPREAD[(int) (n1 >>> shift) & 0xFF] << 1
+                | SPREAD[(int) (n0 >>> shift) & 0xFF];
+    }
+
+    /**
+     * Copies row <code>y</code> out of a row-major bitset, with the bits
+     * past the end of the row cleared.
+     */
+    private void readRow(long[] mines, int y, long[] out) {
+        long start = (long) y * width;
+        for(int w = 0; w < out.length; ++w) {
+            long bit = start + ((long) w << 6);
+            int k = (int) (bit >>> 6);
+            int s = (int) (bit & 63);
+            long word = mines[k] >>> s;
+            if(s != 0 && k + 1 < mines.length)
+                word |= mines[k + 1] << (64 - s);
+            int remaining = width - (w << 6);
+            if(remaining < 64)
+                word &= (1L << remaining) - 1;
+            out[w] = word;
+        }
+    }
+
+    /**
+     * Counts the mines next to the border cells as well, the way
+     * {@link #placeMineSquare(int)} does, so that moving a mine later keeps
+     * every counter in range. Only the mines on the edge of the grid
+     * have border neighbours.
+     */
+    private void countBorder() {
+        for(int y = 0; y < height; ++y) {
+            int step = y == 0 || y == height - 1 ? 1 : Math.max(1, width - 1);
+            for(int x = 0; x < width; x += step) {
+                int i = index(y, x);
+                if((cells[i] & MINE) == 0) continue;
+                for(int d = 0; d < 8; ++d)
+                    if((cells[i + neighbours[d]] & BORDER) != 0)
+                        cells[i + neighbours[d]]++;
+            }
+        }
+    }
+
+    /**
+     * Sets the mine bit and bumps the counter of the neighbours. Mine
+     * cells keep a counter too, it is simply never shown, and on the
+     * square grid the border absorbs the increments that fall outside.
+     */
+    private void placeMineSquare(int i) {
+        cells[i] |= MINE;
+        for(int d = 0; d < 8; ++d)
+            cells[i + neighbours[d]]++;
+    }
+
+    private void placeMineTable(int i) {
+        cells[i] |= MINE;
+        for(int k = adjacencyStart[i], end = adjacencyStart[i + 1]; k < end; ++k)
+            cells[adjacency[k]]++;
+    }
+
+    private void removeMineSquare(int i) {
+        cells[i] &= ~MINE;
+        for(int d = 0; d < 8; ++d)
+            cells[i + neighbours[d]]--;
+    }
+
+    private void removeMineTable(int i) {
+        cells[i] &= ~MINE;
+        for(int k = adjacencyStart[i], end = adjacencyStart[i + 1]; k < end; ++k)
+            cells[adjacency[k]]--;
+    }
+
+    /**
+     * Moves a mine to a cell that has none, updating only the affected
+     * neighbour counters.
+     *
+     * @return <code>false</code> if there is no mine to move or the
+     *         target already holds one.
+     */
+    public boolean moveMine(int fromY, int fromX, int toY, int toX) {
+        return moveMine(index(fromY, fromX), index(toY, toX));
+    }
+
+    public boolean moveMine(int from, int to) {
+        if((cells[from] & MINE) == 0 || (cells[to] & MINE) != 0)
+            return false;
+
+        if(adjacency == null) {
+            removeMineSquare(from);
+            placeMineSquare(to);
+        } else {
+            removeMineTable(from);
+            placeMineTable(to);
+        }
+        return true;
+    }
+
+    /**
+     * Reveals the cells in the grid that are connected to the cell
+     * specified by the <code>x</code> and <code>y</code> coordinates
+     * and that have no mines among their neighbours. If the initial
+     * cell has a non-zero number of surrounding mines, only that cell
+     * will be revealed.
+     * <p>
+     * The fill is iterative: every newly opened cell is appended to the
+     * reveal buffer, and the buffer itself is used as the work queue, so
+     * each cell is visited once and nothing is allocated once the buffer
+     * has grown to the size of the largest opening.
+     *
+     * @param y The row coordinate of the cell to start revealing.
+     * @param x The column coordinate of the cell to start revealing.
+     * @return the number of newly revealed cells, readable through
+     *         {@link #getRevealBuffer()}.
+     */
+    public int revealClearSection(int y, int x) {
+        if(isInvalidCell(y, x)) return 0;
+
+        int start = index(y, x);
+        if(!generated && (cells[start] & FLAGGED) == 0)
+            generate(start);
+        if(!openCell(start)) return 0;
+        if(revealBuffer.length == 0)
+            growRevealBuffer();
+
+        revealBuffer[0] = start;
+        return flood(1);
+    }
+
+    /**
+     * Chords on an opened number: when as many of its neighbours are
+     * flagged as it counts mines, every other closed neighbour is
+     * revealed, and the floods started from all of them run as one. A
+     * wrong flag means one of the opened neighbours is a mine.
+     * <p>
+     * Runs in constant time besides the flood and allocates nothing.
+     *
+     * @return the number of newly revealed cells, readable through
+     *         {@link #getRevealBuffer()}, 0 if the cell can't be chorded.
+     */
+    public int chord(int y, int x) {
+        if(isInvalidCell(y, x)) return 0;
+
+        int center = index(y, x);
+        int number = cells[center] & NUMBER_MASK;
+        if((cells[center] & (OPENED | MINE)) != OPENED || number == 0)
+            return 0;
+
+        int size = neighbours(center, around);
+        int flags = 0;
+        for(int k = 0; k < size; ++k)
+            if((cells[around[k]] & FLAGGED) != 0)
+                flags++;
+        if(flags != number) return 0;
+
+        if(revealBuffer.length == 0)
+            growRevealBuffer();
+
+        int count = 0;
+        for(int k = 0; k < size; ++k)
+            if(openCell(around[k]))
+                revealBuffer[count++] = around[k];
+        return flood(count);
+    }
+
+    /**
+     * Breadth first flood over the reveal buffer, whose first
+     * <code>count</code> cells were just opened.
+     *
+     * @return the total number of cells opened.
+     */
+    private int flood(int count) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        count = adjacency == null ? floodSquare(count) : floodTable(count);
+        if(Metrics.ENABLED)
+            Metrics.recordFloodFill(start, count);
+        return count;
+    }
+
+    private int floodSquare(int count) {
+        for(int head = 0; head < count; ++head) {
+            int i = revealBuffer[head];
+            if((cells[i] & (NUMBER_MASK | MINE)) != 0) continue;
+
+            for(int d = 0; d < 8; ++d) {
+                int n = i + neighbours[d];
+                if(openCell(n)) {
+                    if(count == revealBuffer.length)
+                        growRevealBuffer();
+                    revealBuffer[count++] = n;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int floodTable(int count) {
+        for(int head = 0; head < count; ++head) {
+            int i = revealBuffer[head];
+            if((cells[i] & (NUMBER_MASK | MINE)) != 0) continue;
+
+            for(int k = adjacencyStart[i], end = adjacencyStart[i + 1]; k < end; ++k) {
+                int n = adjacency[k];
+                if(openCell(n)) {
+                    if(count == revealBuffer.length)
+                        growRevealBuffer();
+                    revealBuffer[count++] = n;
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean openCell(int i) {
+        if((cells[i] & (OPENED | FLAGGED | BORDER)) != 0) return false;
+
+        cells[i] |= OPENED;
+        if((cells[i] & MINE) == 0)
+            revealedCells++;
+        if(history != null)
+            history.record(i << 1);
+        return true;
+    }
+
+    private void growRevealBuffer() {
+        int size = Math.max(64, Math.min(revealBuffer.length * 2, width * height));
+        revealBuffer = Arrays.copyOf(revealBuffer, size);
+    }
+
+    /**
+     * @return the cell indexes opened by the last call to
+     *         {@link #revealClearSection(int, int)}. Only the first
+     *         entries, as many as that call returned, are meaningful.
+     */
+    public int[] getRevealBuffer() {
+        return revealBuffer;
+    }
+
+    /**
+     * Counts the 3BV of the board: the fewest clicks that clear it
+     * without flags. Every opening, a region of zero cells together with
+     * the numbers around it, takes one click and every number outside
+     * the openings takes one more. Only meaningful once the mines are
+     * placed.
+     */
+    public int get3BV() {
+        long clicks = count3BVClicks();
+        return (int) (clicks >>> 32) + (int) clicks;
+    }
+
+    /**
+     * Counts the clicks of {@link #get3BV()} by kind.
+     *
+     * @return the openings in the high 32 bits and the numbers outside
+     *         them in the low 32 bits.
+     */
+    long count3BVClicks() {
+        if(marks == null)
+            marks = new long[(cells.length + 63) >>> 6];
+        else
+            Arrays.fill(marks, 0);
+
+        int openings = 0;
+        for(int y = 0; y < height; ++y)
+            for(int x = 0; x < width; ++x) {
+                int i = index(y, x);
+                if((cells[i] & (MINE | NUMBER_MASK)) != 0 || isMarked(i)) continue;
+                openings++;
+                markOpening(i);
+            }
+
+        int isolated = 0;
+        for(int y = 0; y < height; ++y)
+            for(int x = 0; x < width; ++x) {
+                int i = index(y, x);
+                if((cells[i] & MINE) == 0 && !isMarked(i))
+                    isolated++;
+            }
+        return (long) openings << 32 | isolated;
+    }
+
+    private void markOpening(int start) {
+        int top = 0;
+        workBuffer[top++] = start;
+        mark(start);
+
+        while(top > 0) {
+            int i = workBuffer[--top];
+            for(int k = 0, size = neighbours(i, around); k < size; ++k) {
+                int n = around[k];
+                if(isMarked(n)) continue;
+
+                mark(n);
+                if((cells[n] & (MINE | NUMBER_MASK)) != 0) continue;
+                if(top == workBuffer.length)
+                    workBuffer = Arrays.copyOf(workBuffer, top * 2);
+                workBuffer[top++] = n;
+            }
+        }
+    }
+
+    private boolean isMarked(int i) {
+        return (marks[i >>> 6] & 1L << i) != 0;
+    }
+
+    private void mark(int i) {
+        marks[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * Opens a single cell. Flagged cells stay closed. Opening a mine
+     * does not count towards {@link #getRevealedCells()}.
+     */
+    public void revealCell(int y, int x) {
+        if(!generated)
+            generate(-1);
+        openCell(index(y, x));
+    }
+
+    /**
+     * Toggles the flag on a closed cell. A new flag is refused once
+     * as many flags as mines have been placed.
+     *
+     * @return <code>true</code> if the flag state changed.
+     */
+    public boolean toggleFlagged(int y, int x) {
+        return toggleFlagged(index(y, x));
+    }
+
+    public boolean toggleFlagged(int i) {
+        if((cells[i] & (OPENED | BORDER)) != 0) return false;
+
+        boolean flag = (cells[i] & FLAGGED) != 0;
+        if(!flag && mineCounter == 0)
+            return false;
+
+        cells[i] ^= FLAGGED;
+        mineCounter += flag ? 1 : -1;
+        if(history != null)
+            history.record(i << 1 | 1);
+        return true;
+    }
+
+    public boolean isWon() {
+        return revealedCells == width * height - mineNumber;
+    }
+
+    public boolean isInvalidCell(int y, int x) {
+        return y < 0 || y > height - 1 || x < 0 || x > width - 1;
+    }
+
+    public int index(int y, int x) {
+        return (y + 1) * stride + x + 1;
+    }
+
+    public int getCellY(int index) {
+        return index / stride - 1;
+    }
+
+    public int getCellX(int index) {
+        return index % stride - 1;
+    }
+
+    /**
+     * Writes the indexes of the neighbours of a cell that lie inside
+     * the grid into <code>out</code>.
+     *
+     * @return the number of neighbours written, at most 8.
+     */
+    public int neighbours(int index, int[] out) {
+        if(adjacency != null) {
+            int from = adjacencyStart[index];
+            int count = adjacencyStart[index + 1] - from;
+            System.arraycopy(adjacency, from, out, 0, count);
+            return count;
+        }
+
+        int count = 0;
+        for(int d = 0; d < 8; ++d) {
+            int n = index + neighbours[d];
+            if((cells[n] & BORDER) == 0)
+                out[count++] = n;
+        }
+        return count;
+    }
+
+    /**
+     * @return an exclusive upper bound for every cell index of this board.
+     */
+    public int getIndexRange() {
+        return cells.length;
+    }
+
+    public boolean isMine(int y, int x) {
+        return isMine(index(y, x));
+    }
+
+    public boolean isMine(int index) {
+        return (cells[index] & MINE) != 0;
+    }
+
+    public boolean isOpened(int y, int x) {
+        return isOpened(index(y, x));
+    }
+
+    public boolean isOpened(int index) {
+        return (cells[index] & OPENED) != 0;
+    }
+
+    public boolean isFlagged(int y, int x) {
+        return isFlagged(index(y, x));
+    }
+
+    public boolean isFlagged(int index) {
+        return (cells[index] & FLAGGED) != 0;
+    }
+
+    /**
+     * @return the number of mines around the cell, or -1 for a mine.
+     */
+    public int getNumber(int y, int x) {
+        return getNumber(index(y, x));
+    }
+
+    public int getNumber(int index) {
+        int cell = cells[index];
+        return (cell & MINE) != 0 ? -1 : cell & NUMBER_MASK;
+    }
+
+    /**
+     * @return <code>true</code> once the mines have been placed.
+     */
+    public boolean isGenerated() {
+        return generated;
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    public GenerationMode getGenerationMode() {
+        return generationMode;
+    }
+
+    /**
+     * Takes effect on the next {@link #reset()}.
+     *
+     * @throws IllegalArgumentException If the board is too narrow or
+     *         holds too many mines for {@link GenerationMode#NO_GUESS}.
+     */
+    public void setGenerationMode(GenerationMode generationMode) {
+        if(generationMode == GenerationMode.NO_GUESS) {
+            int maxMines = NoGuessGenerator.maxMines(width, height, topology);
+            if(maxMines == -1)
+                throw new IllegalArgumentException("No-guess boards need at least "
+                        + (topology == Topology.TORUS ? 4 : 3) + " rows and columns");
+            if(mineNumber > maxMines)
+                throw new IllegalArgumentException("A no-guess " + width + "x" + height + " board holds at most " + maxMines + " mines");
+        }
+        this.generationMode = generationMode;
+    }
+
+    /**
+     * A copy of the whole state of a board, to return to it later with
+     * {@link #restore(Snapshot)}.
+     */
+    record Snapshot(byte[] cells, long seed, boolean generated, int mineCounter, int revealedCells) { }
+
+    Snapshot snapshot() {
+        return new Snapshot(cells.clone(), seed, generated, mineCounter, revealedCells);
+    }
+
+    /**
+     * Returns to a snapshot taken from a board of the same size.
+     */
+    void restore(Snapshot snapshot) {
+        if(snapshot.cells().length != cells.length)
+            throw new IllegalArgumentException("Snapshot of a different board size");
+
+        System.arraycopy(snapshot.cells(), 0, cells, 0, cells.length);
+        seed = snapshot.seed();
+        generated = snapshot.generated();
+        mineCounter = snapshot.mineCounter();
+        revealedCells = snapshot.revealedCells();
+        rand = new SplittableRandom(seed);
+    }
+
+    /**
+     * Records every cell opened and every flag toggled from now on into
+     * <code>history</code>, or stops recording for <code>null</code>.
+     */
+    void setHistory(UndoHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Makes a change recorded by an {@link UndoHistory} again, without
+     * recording it.
+     *
+     * @return <code>true</code> if the change opened a mine.
+     */
+    boolean apply(int change) {
+        int i = change >>> 1;
+        if((change & 1) != 0) {
+            cells[i] ^= FLAGGED;
+            mineCounter += (cells[i] & FLAGGED) != 0 ? -1 : 1;
+            return false;
+        }
+
+        cells[i] |= OPENED;
+        if((cells[i] & MINE) != 0)
+            return true;
+        revealedCells++;
+        return false;
+    }
+
+    /**
+     * Takes back a change recorded by an {@link UndoHistory}.
+     */
+    void revert(int change) {
+        int i = change >>> 1;
+        if((change & 1) != 0) {
+            apply(change);
+        } else {
+            cells[i] &= ~OPENED;
+            if((cells[i] & MINE) == 0)
+                revealedCells--;
+        }
+    }
+
+    /**
+     * Closes every cell and removes every flag, keeping the mines.
+     */
+    void clearState() {
+        for(int i = 0; i < cells.length; ++i)
+            cells[i] &= ~(OPENED | FLAGGED);
+        mineCounter = mineNumber;
+        revealedCells = 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMineNumber() {
+        return mineNumber;
+    }
+
+    /**
+     * @return the seed the current mines were placed from.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getMineCounter() {
+        return mineCounter;
+    }
+
+    public int getRevealedCells() {
+        return revealedCells;
+    }
+}
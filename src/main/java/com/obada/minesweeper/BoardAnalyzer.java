@@ -0,0 +1,250 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
+
+/**
+ * Measures how hard a seeded board is: its 3BV, the minimum number of
+ * clicks that clear it, split into openings and isolated numbers, and
+ * how often the {@link Solver} has to guess on it.
+ * <p>
+ * The structure is counted by {@link Board#get3BV()}, which also tells
+ * openings and isolated numbers apart.
+ * <p>
+ * An analyzer owns its board and solver and is not thread safe;
+ * {@link #score} runs one per worker.
+ */
+public class BoardAnalyzer {
+    private static final int BLOCK = 1024;
+
+    /**
+     * The difficulty of one board. <code>threeBV</code> is
+     * <code>openings + isolatedNumbers</code>.
+     *
+     * @param guesses The times the solver ran out of deductions before
+     *                the board was cleared.
+     */
+    public record Analysis(int threeBV, int openings, int isolatedNumbers, int guesses) {
+        /**
+         * Packs the four counts into 16 bits each, saturating at 65535.
+         */
+        long pack() {
+            return (long) clamp(threeBV) << 48 | (long) clamp(openings) << 32
+                    | (long) clamp(isolatedNumbers) << 16 | clamp(guesses);
+        }
+
+        private static int clamp(int count) {
+            return Math.min(count, 0xFFFF);
+        }
+    }
+
+    private final Board board;
+    private final Solver solver;
+
+    public BoardAnalyzer(int width, int height, int mineNumber, GenerationMode generationMode) {
+        board = new Board(width, height, mineNumber);
+        board.setGenerationMode(generationMode);
+        solver = new Solver(board);
+    }
+
+    /**
+     * Resets the board to <code>seed</code>, opens its centre as the
+     * first click, which places the mines in every generation mode, and
+     * measures it.
+     */
+    public Analysis analyze(long seed) {
+        board.reset(seed);
+        solver.clear();
+        int first = board.index(board.getHeight() / 2, board.getWidth() / 2);
+        solver.reveal(first);
+
+        long clicks = board.count3BVClicks();
+        int openings = (int) (clicks >>> 32), isolatedNumbers = (int) clicks;
+        int guesses = board.isMine(first) ? 0 : countGuesses();
+        return new Analysis(openings + isolatedNumbers, openings, isolatedNumbers, guesses);
+    }
+
+    /**
+     * Plays the board out with the solver. Each time deduction runs out
+     * the probability engine's safest cell is opened, and if that cell
+     * is a mine the safest cell that isn't, as a lucky player would, so
+     * the count covers the whole board rather than stopping at the
+     * first wrong guess.
+     */
+    private int countGuesses() {
+        int guesses = 0;
+        while(!solver.solve()) {
+            ProbabilityEngine engine = solver.getProbabilityEngine();
+            engine.analyze();
+            int cell = engine.getSafestCell();
+            if(cell == -1) break;
+            if(board.isMine(cell))
+                cell = safestSafeCell(engine);
+
+            guesses++;
+            solver.reveal(cell);
+        }
+        return guesses;
+    }
+
+    private int safestSafeCell(ProbabilityEngine engine) {
+        int best = -1;
+        double bestProbability = 2;
+        for(int y = 0; y < board.getHeight(); ++y)
+            for(int x = 0; x < board.getWidth(); ++x) {
+                int i = board.index(y, x);
+                if(board.isOpened(i) || board.isMine(i)) continue;
+                double probability = engine.getMineProbability(i);
+                if(probability < bestProbability) {
+                    bestProbability = probability;
+                    best = i;
+                }
+            }
+        return best;
+    }
+
+    /**
+     * Analyzes the seeds <code>firstSeed</code> to
+     * <code>firstSeed + count - 1</code> on every core, in blocks that
+     * each get an analyzer of their own.
+     *
+     * @return the {@link Analysis#pack() packed} analysis of each seed,
+     *         in seed order.
+     */
+    public static long[] score(int width, int height, int mineNumber, GenerationMode generationMode,
+                               long firstSeed, int count) {
+        long[] packed = new long[count];
+        int blocks = (count + BLOCK - 1) / BLOCK;
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            var analyzer = new BoardAnalyzer(width, height, mineNumber, generationMode);
+            int end = Math.min(count, (block + 1) * BLOCK);
+            for(int k = block * BLOCK; k < end; ++k)
+                packed[k] = analyzer.analyze(firstSeed + k).pack();
+        });
+        return packed;
+    }
+
+    /**
+     * Entry point for <code>--analyze</code>.
+     */
+    public static void main(String[] args) {
+        Difficulty difficulty = Difficulty.EXPERT;
+        int width = -1, height = -1, mines = -1;
+        GenerationMode mode = GenerationMode.FIRST_CLICK_SAFE;
+        long seed = 0;
+        int seeds = 1;
+        Path out = null, index = null;
+        int min3BV = 0, max3BV = 0xFFFF, maxGuesses = 0xFFFF;
+        long day = System.currentTimeMillis() / 86_400_000;
+
+        try {
+            for(int i = 0; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "--analyze" -> { }
+                    case "--help" -> {
+                        printUsage(System.out);
+                        return;
+                    }
+                    case "--preset" -> difficulty = Difficulty.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    case "--width" -> width = Integer.parseInt(args[++i]);
+                    case "--height" -> height = Integer.parseInt(args[++i]);
+                    case "--mines" -> mines = Integer.parseInt(args[++i]);
+                    case "--mode" -> mode = GenerationMode.valueOf(args[++i].toUpperCase(Locale.ROOT).replace('-', '_'));
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--seeds" -> seeds = Integer.parseInt(args[++i]);
+                    case "--out" -> out = Path.of(args[++i]);
+                    case "--index" -> index = Path.of(args[++i]);
+                    case "--min-3bv" -> min3BV = Integer.parseInt(args[++i]);
+                    case "--max-3bv" -> max3BV = Integer.parseInt(args[++i]);
+                    case "--max-guesses" -> maxGuesses = Integer.parseInt(args[++i]);
+                    case "--day" -> day = Long.parseLong(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            printUsage(System.err);
+            System.exit(1);
+            return;
+        }
+
+        if(width == -1) width = difficulty.getWidth();
+        if(height == -1) height = difficulty.getHeight();
+        if(mines == -1) mines = difficulty.getMineNumber();
+        if(width <= 0 || height <= 0 || seeds <= 0) {
+            printUsage(System.err);
+            System.exit(1);
+            return;
+        }
+
+        try {
+            if(index != null)
+                pick(index, min3BV, max3BV, maxGuesses, day);
+            else if(out != null)
+                buildIndex(out, width, height, mines, mode, seed, seeds);
+            else
+                print(seed, new BoardAnalyzer(width, height, mines, mode).analyze(seed));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void buildIndex(Path out, int width, int height, int mines, GenerationMode mode,
+                                   long firstSeed, int count) throws IOException {
+        System.out.printf(Locale.ROOT, "Analyzing %d boards of %dx%d with %d mines (%s) from seed %d%n",
+                count, width, height, mines, mode.getTitle(), firstSeed);
+        long start = System.nanoTime();
+        long[] packed = score(width, height, mines, mode, firstSeed, count);
+        long nanos = System.nanoTime() - start;
+        SeedIndex.write(out, width, height, mines, mode, firstSeed, packed);
+
+        int[] threeBV = new int[count];
+        for(int k = 0; k < count; ++k)
+            threeBV[k] = (int) (packed[k] >>> 48);
+        Arrays.sort(threeBV);
+        System.out.printf(Locale.ROOT, "3BV:          min %d, p10 %d, p50 %d, p90 %d, max %d%n",
+                threeBV[0], threeBV[count / 10], threeBV[count / 2], threeBV[count * 9 / 10], threeBV[count - 1]);
+        System.out.printf(Locale.ROOT, "Boards/second: %.0f%n", count * 1e9 / nanos);
+        System.out.println("Wrote " + out);
+    }
+
+    private static void pick(Path path, int min3BV, int max3BV, int maxGuesses, long day) throws IOException {
+        SeedIndex index = SeedIndex.open(path);
+        OptionalInt record = index.pick(min3BV, max3BV, maxGuesses, day);
+        if(record.isEmpty()) {
+            System.err.println("No board in " + path + " matches");
+            System.exit(1);
+            return;
+        }
+
+        System.out.printf(Locale.ROOT, "%dx%d with %d mines (%s)%n",
+                index.getWidth(), index.getHeight(), index.getMineNumber(), index.getGenerationMode().getTitle());
+        print(index.getSeed(record.getAsInt()), index.getAnalysis(record.getAsInt()));
+    }
+
+    private static void print(long seed, Analysis analysis) {
+        System.out.printf(Locale.ROOT, "Seed %d: 3BV %d, openings %d, isolated numbers %d, guesses %d%n",
+                seed, analysis.threeBV(), analysis.openings(), analysis.isolatedNumbers(), analysis.guesses());
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("""
+                Usage: java -jar Minesweeper.jar --analyze [options]
+                  --preset beginner|intermediate|expert
+                  --width W --height H --mines M   custom board, overrides the preset
+                  --mode classic|first-click-safe|no-guess
+                  --seed S                         the board to analyze, or the first seed (0)
+                  --seeds N --out FILE             analyze N seeds on every core into an index
+                  --index FILE                     pick a board from an index instead
+                  --min-3bv A --max-3bv B          the 3BV band to pick from
+                  --max-guesses G                  the most guesses the picked board may need
+                  --day D                          the day to pick for (today)
+                  --help                           print this list""");
+    }
+}
@@ -0,0 +1,434 @@
+package com.obada.minesweeper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.image.BufferedImage;
+
+/**
+ * A single component that draws the whole {@link Board}. Only the cells
+ * inside the clip are painted, so the cost of a paint depends on the
+ * size of the viewport and not on the size of the board.
+ * <p>
+ * Changed cells are collected in a dirty bitset and flushed as one
+ * repaint once the current event has been handled, and every cell is a
+ * single blit from a tile atlas rendered once per cell size.
+ * <p>
+ * {@link Topology#HEX} boards are drawn as offset rows, every odd row
+ * half a cell to the right, so each cell touches exactly its six
+ * neighbours.
+ */
+class BoardPanel extends JComponent implements Scrollable {
+    static final int MIN_CELL_SIZE = 16;
+    static final int PREWARM_CELL_SIZE = 80;
+
+    // tiles in the atlas, numbered tiles 0-8 come first
+    static final int TILE_MINE = 9;
+    static final int TILE_CLOSED = 10;
+    static final int TILE_PRESSED = 11;
+    static final int TILE_FLAG = 12;
+    private static final int TILE_COUNT = 13;
+
+    private final ResourceManager resourceManager = ResourceManager.getInstance();
+    private Board board;
+    private int cellSize = MIN_CELL_SIZE;
+    private int pressedCell = -1;
+    private int hintCell = -1;
+    private int cursorCell = -1;
+    private BufferedImage atlas;
+    private long[] dirty;
+    private final int[] neighbourBuffer = new int[8];
+    private final int[] pressedNeighbours = new int[8];
+    private int pressedNeighbourCount;
+    private int dirtyFirst = Integer.MAX_VALUE;
+    private int dirtyLast = -1;
+    private boolean flushPending;
+
+    private final ComponentAdapter viewportListener = new ComponentAdapter() {
+        @Override
+        public void componentResized(ComponentEvent e) {
+            updateCellSize();
+        }
+    };
+
+    BoardPanel(Board board) {
+        this.board = board;
+        setOpaque(true);
+        setBackground(resourceManager.closedCell);
+        resourceManager.prewarm(MIN_CELL_SIZE, PREWARM_CELL_SIZE);
+        dirty = new long[(board.getIndexRange() + 63) >>> 6];
+        updateResources();
+        // the loaded future drops its callbacks once it completes, so no panel stays reachable from it
+        if(!resourceManager.isLoaded())
+            resourceManager.whenLoaded(() -> {
+                updateResources();
+                repaint();
+            });
+    }
+
+    public void setBoard(Board board) {
+        this.board = board;
+        pressedCell = -1;
+        pressedNeighbourCount = 0;
+        hintCell = -1;
+        cursorCell = -1;
+        dirty = new long[(board.getIndexRange() + 63) >>> 6];
+        dirtyFirst = Integer.MAX_VALUE;
+        dirtyLast = -1;
+        updateCellSize();
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if(getParent() instanceof JViewport viewport)
+            viewport.addComponentListener(viewportListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        if(getParent() instanceof JViewport viewport)
+            viewport.removeComponentListener(viewportListener);
+        super.removeNotify();
+    }
+
+    /**
+     * Fits the cells to the viewport, never going below
+     * {@link #MIN_CELL_SIZE}. Bigger boards scroll instead.
+     */
+    private void updateCellSize() {
+        if(!(getParent() instanceof JViewport viewport))
+            return;
+
+        Dimension extent = viewport.getExtentSize();
+        if(extent.width <= 0 || extent.height <= 0)
+            return;
+
+        int size = Math.max(MIN_CELL_SIZE, Math.min(
+                extent.width * 2 / (board.getWidth() * 2 + (isHex() ? 1 : 0)),
+                extent.height / board.getHeight()));
+        if(size == cellSize)
+            return;
+
+        cellSize = size;
+        updateResources();
+        revalidate();
+        repaint();
+    }
+
+    private void updateResources() {
+        resourceManager.updateCellFontToFit(cellSize);
+        atlas = createAtlas(getGraphicsConfiguration(), cellSize);
+    }
+
+    /**
+     * Renders every kind of cell once, side by side, so painting a cell
+     * is a single image copy.
+     */
+    static BufferedImage createAtlas(GraphicsConfiguration config, int size) {
+        ResourceManager resourceManager = ResourceManager.getInstance();
+        BufferedImage image = config != null
+                ? config.createCompatibleImage(size * TILE_COUNT, size)
+                : new BufferedImage(size * TILE_COUNT, size, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(resourceManager.getCellFont(size));
+        FontMetrics metrics = g.getFontMetrics();
+        BufferedImage mineImage = resourceManager.getScaledImage(resourceManager.getMineImage(), size);
+        BufferedImage flagImage = resourceManager.getScaledImage(resourceManager.getFlagImage(), size);
+
+        for(int number = 0; number <= 8; ++number) {
+            int px = number * size;
+            paintTile(g, resourceManager.openedCell, px, size);
+            if(number == 0) continue;
+
+            String text = Integer.toString(number);
+            g.setColor(resourceManager.numberColors[number]);
+            g.drawString(text,
+                    px + (size - metrics.stringWidth(text)) / 2,
+                    (size - metrics.getHeight()) / 2 + metrics.getAscent());
+        }
+
+        paintTile(g, resourceManager.mineBackground, TILE_MINE * size, size);
+        g.drawImage(mineImage, TILE_MINE * size, 0, null);
+        paintTile(g, resourceManager.closedCell, TILE_CLOSED * size, size);
+        paintTile(g, resourceManager.openedCell, TILE_PRESSED * size, size);
+        paintTile(g, resourceManager.closedCell, TILE_FLAG * size, size);
+        g.drawImage(flagImage, TILE_FLAG * size, 0, null);
+        g.dispose();
+
+        return image;
+    }
+
+    private static void paintTile(Graphics g, Color background, int px, int size) {
+        g.setColor(background);
+        g.fillRect(px, 0, size, size);
+        paintBevel(g, px, 0, size);
+    }
+
+    private boolean isHex() {
+        return board.getTopology() == Topology.HEX;
+    }
+
+    /**
+     * @return the width of the drawn board, half a cell wider than the
+     *         cells for offset hex rows.
+     */
+    private int boardWidth() {
+        return board.getWidth() * cellSize + (isHex() ? cellSize / 2 : 0);
+    }
+
+    /**
+     * @return the left edge of the cells of a row.
+     */
+    private int rowX(int y) {
+        return originX() + (isHex() && (y & 1) != 0 ? cellSize / 2 : 0);
+    }
+
+    private int originX() {
+        return Math.max(0, (getWidth() - boardWidth()) / 2);
+    }
+
+    private int originY() {
+        return Math.max(0, (getHeight() - board.getHeight() * cellSize) / 2);
+    }
+
+    /**
+     * @return the index of the cell under the given point, or -1.
+     */
+    public int cellAt(int px, int py) {
+        py -= originY();
+        if(py < 0) return -1;
+        int y = py / cellSize;
+        px -= rowX(y);
+        if(px < 0) return -1;
+
+        int x = px / cellSize;
+        if(board.isInvalidCell(y, x)) return -1;
+        return board.index(y, x);
+    }
+
+    /**
+     * Highlights the closed neighbours of the given cell, or clears the
+     * highlight for -1.
+     */
+    public void setPressedCell(int index) {
+        if(pressedCell == index) return;
+        if(pressedCell != -1) markAround(pressedCell);
+        pressedCell = index;
+        pressedNeighbourCount = index == -1 ? 0 : board.neighbours(index, pressedNeighbours);
+        if(pressedCell != -1) markAround(pressedCell);
+    }
+
+    /**
+     * Outlines the given cell, or clears the outline for -1.
+     */
+    public void setHintCell(int index) {
+        if(hintCell == index) return;
+        if(hintCell != -1) markDirty(hintCell);
+        hintCell = index;
+        if(hintCell != -1) {
+            markDirty(hintCell);
+            scrollToCell(hintCell);
+        }
+    }
+
+    /**
+     * Outlines the keyboard cursor on the given cell, or hides it for -1.
+     */
+    public void setCursorCell(int index) {
+        if(cursorCell == index) return;
+        if(cursorCell != -1) markDirty(cursorCell);
+        cursorCell = index;
+        if(cursorCell != -1) {
+            markDirty(cursorCell);
+            scrollToCell(cursorCell);
+        }
+    }
+
+    private void scrollToCell(int index) {
+        scrollRectToVisible(new Rectangle(
+                rowX(board.getCellY(index)) + board.getCellX(index) * cellSize,
+                originY() + board.getCellY(index) * cellSize,
+                cellSize, cellSize));
+    }
+
+    private void markAround(int index) {
+        markDirty(index);
+        for(int i = 0, n = board.neighbours(index, neighbourBuffer); i < n; ++i)
+            markDirty(neighbourBuffer[i]);
+    }
+
+    /**
+     * Marks the cells opened by the last reveal for repainting.
+     *
+     * @param count The number of cells the reveal opened.
+     */
+    public void repaintRevealed(int count) {
+        int[] revealed = board.getRevealBuffer();
+        for(int i = 0; i < count; ++i)
+            markDirty(revealed[i]);
+    }
+
+    public void repaintCell(int y, int x) {
+        markDirty(board.index(y, x));
+    }
+
+    /**
+     * Marks a cell for repainting. All cells marked while handling one
+     * event are flushed together as a single repaint.
+     */
+    public void markDirty(int index) {
+        dirty[index >>> 6] |= 1L << index;
+        dirtyFirst = Math.min(dirtyFirst, index);
+        dirtyLast = Math.max(dirtyLast, index);
+        if(!flushPending) {
+            flushPending = true;
+            SwingUtilities.invokeLater(this::flushDirty);
+        }
+    }
+
+    /**
+     * Repaints the bounding box of the dirty cells and clears them.
+     */
+    private void flushDirty() {
+        flushPending = false;
+        if(dirtyLast < 0) return;
+
+        int minY = Integer.MAX_VALUE, minX = Integer.MAX_VALUE;
+        int maxY = -1, maxX = -1;
+        for(int w = dirtyFirst >>> 6, last = dirtyLast >>> 6; w <= last; ++w) {
+            long bits = dirty[w];
+            if(bits == 0) continue;
+            dirty[w] = 0;
+
+            // the bits of one word lie on at most a few rows, take the rows
+            // from the ends and the columns from each set bit
+            minY = Math.min(minY, board.getCellY((w << 6) + Long.numberOfTrailingZeros(bits)));
+            maxY = Math.max(maxY, board.getCellY((w << 6) + 63 - Long.numberOfLeadingZeros(bits)));
+            for(; bits != 0; bits &= bits - 1) {
+                int x = board.getCellX((w << 6) + Long.numberOfTrailingZeros(bits));
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+            }
+        }
+        dirtyFirst = Integer.MAX_VALUE;
+        dirtyLast = -1;
+
+        if(maxY < 0) return;
+
+        // offset hex rows reach half a cell further
+        int extra = isHex() ? cellSize / 2 : 0;
+        repaint(originX() + minX * cellSize, originY() + minY * cellSize,
+                (maxX - minX + 1) * cellSize + extra, (maxY - minY + 1) * cellSize);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Rectangle clip = g.getClipBounds();
+        if(clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int oy = originY();
+        int y0 = Math.max(0, (clip.y - oy) / cellSize);
+        int y1 = Math.min(board.getHeight() - 1, (clip.y + clip.height - 1 - oy) / cellSize);
+        int painted = 0;
+
+        for(int y = y0; y <= y1; ++y) {
+            int ox = rowX(y);
+            int x0 = Math.max(0, Math.floorDiv(clip.x - ox, cellSize));
+            int x1 = Math.min(board.getWidth() - 1, Math.floorDiv(clip.x + clip.width - 1 - ox, cellSize));
+            for(int x = x0; x <= x1; ++x) {
+                int px = ox + x * cellSize;
+                int py = oy + y * cellSize;
+                int sx = tileOf(y, x) * cellSize;
+                g.drawImage(atlas, px, py, px + cellSize, py + cellSize, sx, 0, sx + cellSize, cellSize, null);
+            }
+            painted += Math.max(0, x1 - x0 + 1);
+        }
+
+        if(hintCell != -1)
+            outline(g, hintCell, resourceManager.hintOutline);
+        if(cursorCell != -1)
+            outline(g, cursorCell, resourceManager.cursorOutline);
+
+        if(Metrics.ENABLED)
+            Metrics.recordRepaint(start, painted);
+    }
+
+    private void outline(Graphics g, int index, Color color) {
+        g.setColor(color);
+        int px = rowX(board.getCellY(index)) + board.getCellX(index) * cellSize;
+        int py = originY() + board.getCellY(index) * cellSize;
+        g.drawRect(px + 1, py + 1, cellSize - 3, cellSize - 3);
+        g.drawRect(px + 2, py + 2, cellSize - 5, cellSize - 5);
+    }
+
+    private int tileOf(int y, int x) {
+        if(!board.isOpened(y, x)) {
+            if(board.isFlagged(y, x)) return TILE_FLAG;
+            return isHighlighted(y, x) ? TILE_PRESSED : TILE_CLOSED;
+        }
+
+        int number = board.getNumber(y, x);
+        return number < 0 ? TILE_MINE : number;
+    }
+
+    private boolean isHighlighted(int y, int x) {
+        int index = board.index(y, x);
+        for(int k = 0; k < pressedNeighbourCount; ++k)
+            if(pressedNeighbours[k] == index)
+                return true;
+        return false;
+    }
+
+    private static void paintBevel(Graphics g, int px, int py, int size) {
+        g.setColor(Color.lightGray);
+        g.drawLine(px, py, px + size - 1, py);
+        g.drawLine(px, py, px, py + size - 1);
+        g.setColor(Color.darkGray);
+        g.drawLine(px, py + size - 1, px + size - 1, py + size - 1);
+        g.drawLine(px + size - 1, py, px + size - 1, py + size - 1);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(boardWidth(), board.getHeight() * cellSize);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return cellSize;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        int extent = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+        return Math.max(cellSize, extent - cellSize);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport viewport
+                && viewport.getWidth() >= boardWidth();
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport viewport
+                && viewport.getHeight() >= board.getHeight() * cellSize;
+    }
+}
@@ -0,0 +1,148 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the opened and flagged layers of evicted {@link EndlessBoard}
+ * chunks on disk. Mines and numbers are never stored, they are derived
+ * from the world seed again on reload.
+ * <p>
+ * Chunks are grouped into region files of 32x32 chunks, each chunk in
+ * a fixed slot at an offset computed from its coordinates, so there is
+ * no index to keep in memory however far the world extends. Slots that
+ * were never written read back as zeros, which is exactly the state of
+ * an untouched chunk, and the files stay sparse.
+ */
+class ChunkStore implements AutoCloseable {
+    static final int REGION_BITS = 5;
+    private static final int REGION_SIZE = 1 << REGION_BITS;
+    private static final int OPEN_REGIONS = 8;
+
+    private final Path directory;
+    private final int words;
+    private final int slotSize;
+    private final ByteBuffer buffer;
+    private final Map<Long, FileChannel> regions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, FileChannel> eldest) {
+            if(size() <= OPEN_REGIONS) return false;
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+
+    /**
+     * @param words The length of one layer of a chunk, in words.
+     */
+    ChunkStore(Path directory, int words) {
+        this.directory = directory;
+        this.words = words;
+        this.slotSize = words * 2 * Long.BYTES;
+        this.buffer = ByteBuffer.allocate(slotSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    void write(int cy, int cx, long[] opened, long[] flagged) throws IOException {
+        buffer.clear();
+        for(int i = 0; i < words; ++i)
+            buffer.putLong(opened[i]);
+        for(int i = 0; i < words; ++i)
+            buffer.putLong(flagged[i]);
+        buffer.flip();
+
+        FileChannel channel = region(cy, cx, true);
+        long position = slot(cy, cx);
+        while(buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+    /**
+     * Reads the layers of a chunk back, both all zeros if it was never
+     * written.
+     */
+    void read(int cy, int cx, long[] opened, long[] flagged) throws IOException {
+        buffer.clear();
+        FileChannel channel = region(cy, cx, false);
+        if(channel != null) {
+            long position = slot(cy, cx);
+            while(buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if(read < 0) break;
+                position += read;
+            }
+        }
+        while(buffer.hasRemaining())
+            buffer.put((byte) 0);
+        buffer.flip();
+
+        for(int i = 0; i < words; ++i)
+            opened[i] = buffer.getLong();
+        for(int i = 0; i < words; ++i)
+            flagged[i] = buffer.getLong();
+    }
+
+    private long slot(int cy, int cx) {
+        int sy = cy & (REGION_SIZE - 1);
+        int sx = cx & (REGION_SIZE - 1);
+        return (long) (sy * REGION_SIZE + sx) * slotSize;
+    }
+
+    /**
+     * @return the open region file of a chunk, or <code>null</code> if it
+     *         does not exist and <code>create</code> is not set.
+     */
+    private FileChannel region(int cy, int cx, boolean create) throws IOException {
+        int ry = cy >> REGION_BITS;
+        int rx = cx >> REGION_BITS;
+        long key = (long) ry << 32 | rx & 0xFFFFFFFFL;
+        FileChannel channel = regions.get(key);
+        if(channel != null)
+            return channel;
+
+        Path file = directory.resolve("r." + ry + "." + rx + ".bin");
+        try {
+            channel = create
+                    ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        regions.put(key, channel);
+        return channel;
+    }
+
+    /**
+     * Closes the region files and deletes the whole store.
+     */
+    @Override
+    public void close() throws IOException {
+        for(FileChannel channel : regions.values())
+            closeQuietly(channel);
+        regions.clear();
+
+        if(!Files.exists(directory))
+            return;
+        try(Stream<Path> files = Files.walk(directory)) {
+            for(Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                Files.deleteIfExists(file);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Could not close a chunk region: " + e.getMessage());
+        }
+    }
+}
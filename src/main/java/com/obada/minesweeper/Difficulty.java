@@ -0,0 +1,54 @@
+package com.obada.minesweeper;
+
+/**
+ * The classic board presets. Anything else is a custom board, limited
+ * to {@link #MAX_LENGTH} cells per side.
+ */
+public enum Difficulty {
+    BEGINNER("Beginner", 9, 9, 10),
+    INTERMEDIATE("Intermediate", 16, 16, 40),
+    EXPERT("Expert", 30, 16, 99),
+    CUSTOM("Custom", 0, 0, 0);
+
+    public static final int MAX_LENGTH = 10_000;
+
+    private final String title;
+    private final int width;
+    private final int height;
+    private final int mineNumber;
+
+    Difficulty(String title, int width, int height, int mineNumber) {
+        this.title = title;
+        this.width = width;
+        this.height = height;
+        this.mineNumber = mineNumber;
+    }
+
+    /**
+     * @return the preset matching the given board, or {@link #CUSTOM}.
+     */
+    public static Difficulty of(int width, int height, int mineNumber) {
+        for(Difficulty difficulty : values())
+            if(difficulty.width == width
+                && difficulty.height == height
+                && difficulty.mineNumber == mineNumber)
+                return difficulty;
+        return CUSTOM;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMineNumber() {
+        return mineNumber;
+    }
+}
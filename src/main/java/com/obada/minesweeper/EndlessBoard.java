@@ -0,0 +1,460 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Headless engine of an unbounded board. The world is cut into chunks
+ * of 64x64 cells that are generated on first use, each from the world
+ * seed and its own coordinates alone, so a chunk comes out the same
+ * whenever and in whatever order it is reached. Every cell uses the
+ * same bits as in {@link Board}.
+ * <p>
+ * Only the chunks near the player stay in memory. {@link #trim(int, int)}
+ * evicts the farthest ones once there are too many, writing the opened
+ * and flagged cells of the touched ones to a {@link ChunkStore}, and a
+ * chunk is rebuilt from its seed and the store when it is reached
+ * again. Memory stays bounded however far the player goes.
+ * <p>
+ * The 3x3 cells around the origin never hold a mine, so the game
+ * starts by opening them. The density is kept high enough for every
+ * opening to be finite.
+ */
+public class EndlessBoard implements AutoCloseable {
+    static final int CHUNK_BITS = 6;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MINE_CACHE_SIZE = 256;
+
+    static final double MIN_DENSITY = 0.12;
+    static final double MAX_DENSITY = 0.5;
+    static final int DEFAULT_MAX_CHUNKS = 1024;
+
+    private static final class Chunk {
+        final int cy;
+        final int cx;
+        final byte[] cells = new byte[CHUNK_SIZE * CHUNK_SIZE];
+        boolean dirty;
+
+        Chunk(int cy, int cx) {
+            this.cy = cy;
+            this.cx = cx;
+        }
+    }
+
+    private final long seed;
+    private final double density;
+    private final int minesPerChunk;
+    private final int maxChunks;
+    private final ChunkStore store;
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+    private final Map<Long, long[]> mineCache = new LinkedHashMap<>(MINE_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+            return size() > MINE_CACHE_SIZE;
+        }
+    };
+    private final long[] opened = new long[CHUNK_SIZE];
+    private final long[] flagged = new long[CHUNK_SIZE];
+    private long lastKey;
+    private Chunk lastChunk;
+    private long[] revealBuffer = new long[64];
+    private long revealedCells = 0;
+    private long flagCount = 0;
+    private boolean exploded = false;
+
+    /**
+     * @param density          The share of cells holding a mine, between
+     *                         {@link #MIN_DENSITY} and {@link #MAX_DENSITY}.
+     * @param storeDirectory   Where evicted chunks are written, deleted
+     *                         again by {@link #close()}.
+     */
+    public EndlessBoard(long seed, double density, Path storeDirectory) {
+        this(seed, density, storeDirectory, DEFAULT_MAX_CHUNKS);
+    }
+
+    EndlessBoard(long seed, double density, Path storeDirectory, int maxChunks) {
+        if(!(density >= MIN_DENSITY && density <= MAX_DENSITY))
+            throw new IllegalArgumentException("Density " + density + " is outside "
+                    + MIN_DENSITY + " to " + MAX_DENSITY);
+        if(maxChunks < 16)
+            throw new IllegalArgumentException("At least 16 chunks must fit in memory");
+
+        this.seed = seed;
+        this.density = density;
+        this.minesPerChunk = (int) Math.round(density * CHUNK_SIZE * CHUNK_SIZE);
+        this.maxChunks = maxChunks;
+        this.store = new ChunkStore(storeDirectory, CHUNK_SIZE);
+    }
+
+    static long key(int y, int x) {
+        return (long) y << 32 | x & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return the row of a cell packed by the reveal buffer.
+     */
+    public static int cellY(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    /**
+     * @return the column of a cell packed by the reveal buffer.
+     */
+    public static int cellX(long cell) {
+        return (int) cell;
+    }
+
+    private Chunk chunk(int cy, int cx) {
+        long key = key(cy, cx);
+        if(lastChunk != null && lastKey == key)
+            return lastChunk;
+
+        Chunk chunk = chunks.get(key);
+        if(chunk == null) {
+            chunk = load(cy, cx);
+            chunks.put(key, chunk);
+        }
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    private int cell(int y, int x) {
+        return chunk(y >> CHUNK_BITS, x >> CHUNK_BITS).cells[(y & CHUNK_MASK) << CHUNK_BITS | x & CHUNK_MASK];
+    }
+
+    /**
+     * Builds a chunk from its mines and those of its eight neighbours,
+     * then lays the opened and flagged cells from the store over it.
+     */
+    private Chunk load(int cy, int cx) {
+        Chunk chunk = new Chunk(cy, cx);
+        long[] north = mines(cy - 1, cx), south = mines(cy + 1, cx);
+        long[] west = mines(cy, cx - 1), east = mines(cy, cx + 1);
+        long[] center = mines(cy, cx);
+        long[] above = new long[3], current = new long[3], below = new long[3];
+
+        for(int y = 0; y < CHUNK_SIZE; ++y) {
+            if(y == 0) {
+                above[0] = mines(cy - 1, cx - 1)[CHUNK_MASK];
+                above[1] = north[CHUNK_MASK];
+                above[2] = mines(cy - 1, cx + 1)[CHUNK_MASK];
+            } else {
+                above[0] = west[y - 1];
+                above[1] = center[y - 1];
+                above[2] = east[y - 1];
+            }
+            current[0] = west[y];
+            current[1] = center[y];
+            current[2] = east[y];
+            if(y == CHUNK_MASK) {
+                below[0] = mines(cy + 1, cx - 1)[0];
+                below[1] = south[0];
+                below[2] = mines(cy + 1, cx + 1)[0];
+            } else {
+                below[0] = west[y + 1];
+                below[1] = center[y + 1];
+                below[2] = east[y + 1];
+            }
+            Board.countWord(above, current, below, 1, chunk.cells, y << CHUNK_BITS, CHUNK_SIZE);
+        }
+
+        try {
+            store.read(cy, cx, opened, flagged);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read chunk " + cy + "," + cx, e);
+        }
+        for(int y = 0; y < CHUNK_SIZE; ++y) {
+            for(long bits = opened[y]; bits != 0; bits &= bits - 1)
+                chunk.cells[y << CHUNK_BITS | Long.numberOfTrailingZeros(bits)] |= Board.OPENED;
+            for(long bits = flagged[y]; bits != 0; bits &= bits - 1)
+                chunk.cells[y << CHUNK_BITS | Long.numberOfTrailingZeros(bits)] |= Board.FLAGGED;
+        }
+        return chunk;
+    }
+
+    /**
+     * @return the mines of a chunk, one word per row.
+     */
+    private long[] mines(int cy, int cx) {
+        long key = key(cy, cx);
+        long[] words = mineCache.get(key);
+        if(words == null) {
+            words = generateMines(cy, cx);
+            mineCache.put(key, words);
+        }
+        return words;
+    }
+
+    /**
+     * Draws the mines of a chunk with Floyd's sampling algorithm, see
+     * {@link Board}, from a random generator seeded by the world seed
+     * and the chunk coordinates.
+     */
+    private long[] generateMines(int cy, int cx) {
+        long[] words = new long[CHUNK_SIZE];
+        var rand = new SplittableRandom(mix(seed ^ key(cy, cx) * 0x9E3779B97F4A7C15L));
+        int area = CHUNK_SIZE * CHUNK_SIZE;
+        for(int j = area - minesPerChunk; j < area; ++j) {
+            int p = rand.nextInt(j + 1);
+            if((words[p >>> CHUNK_BITS] & 1L << p) != 0)
+                p = j;
+            words[p >>> CHUNK_BITS] |= 1L << p;
+        }
+
+        for(int y = -1; y <= 1; ++y)
+            for(int x = -1; x <= 1; ++x)
+                if(y >> CHUNK_BITS == cy && x >> CHUNK_BITS == cx)
+                    words[y & CHUNK_MASK] &= ~(1L << (x & CHUNK_MASK));
+        return words;
+    }
+
+    /**
+     * The MurmurHash3 finalizer, so that neighbouring chunks get
+     * unrelated seeds.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Reveals a cell and, when it has no mines around it, the opening
+     * it belongs to, across as many chunks as it spans. Opening a mine
+     * ends the game, see {@link #isExploded()}.
+     *
+     * @return the number of newly revealed cells, readable through
+     *         {@link #getRevealBuffer()}.
+     */
+    public int revealClearSection(int y, int x) {
+        if(!openCell(y, x)) return 0;
+
+        revealBuffer[0] = key(y, x);
+        return flood(1);
+    }
+
+    /**
+     * Chords on an opened number, as {@link Board#chord(int, int)} does.
+     *
+     * @return the number of newly revealed cells, readable through
+     *         {@link #getRevealBuffer()}, 0 if the cell can't be chorded.
+     */
+    public int chord(int y, int x) {
+        int center = cell(y, x);
+        int number = center & Board.NUMBER_MASK;
+        if((center & (Board.OPENED | Board.MINE)) != Board.OPENED || number == 0)
+            return 0;
+
+        int flags = 0;
+        for(int d = 0; d < 8; ++d)
+            if((cell(y + Board.dy[d], x + Board.dx[d]) & Board.FLAGGED) != 0)
+                flags++;
+        if(flags != number) return 0;
+
+        int count = 0;
+        for(int d = 0; d < 8; ++d) {
+            int ny = y + Board.dy[d];
+            int nx = x + Board.dx[d];
+            if(openCell(ny, nx))
+                revealBuffer[count++] = key(ny, nx);
+        }
+        return flood(count);
+    }
+
+    /**
+     * Breadth first flood over the reveal buffer. Neighbours inside the
+     * chunk of the current cell are reached without a lookup, only the
+     * cells on a chunk edge go through the chunk map.
+     */
+    private int flood(int count) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        for(int head = 0; head < count; ++head) {
+            int y = cellY(revealBuffer[head]);
+            int x = cellX(revealBuffer[head]);
+            Chunk chunk = chunk(y >> CHUNK_BITS, x >> CHUNK_BITS);
+            int ly = y & CHUNK_MASK;
+            int lx = x & CHUNK_MASK;
+            int i = ly << CHUNK_BITS | lx;
+            if((chunk.cells[i] & (Board.NUMBER_MASK | Board.MINE)) != 0) continue;
+
+            boolean inside = ly > 0 && ly < CHUNK_MASK && lx > 0 && lx < CHUNK_MASK;
+            for(int d = 0; d < 8; ++d) {
+                int ny = y + Board.dy[d];
+                int nx = x + Board.dx[d];
+                boolean opened = inside
+                        ? openCell(chunk, i + (Board.dy[d] << CHUNK_BITS) + Board.dx[d])
+                        : openCell(ny, nx);
+                if(opened) {
+                    if(count == revealBuffer.length)
+                        revealBuffer = Arrays.copyOf(revealBuffer, count * 2);
+                    revealBuffer[count++] = key(ny, nx);
+                }
+            }
+        }
+
+        if(Metrics.ENABLED)
+            Metrics.recordFloodFill(start, count);
+        return count;
+    }
+
+    private boolean openCell(int y, int x) {
+        return openCell(chunk(y >> CHUNK_BITS, x >> CHUNK_BITS), (y & CHUNK_MASK) << CHUNK_BITS | x & CHUNK_MASK);
+    }
+
+    private boolean openCell(Chunk chunk, int i) {
+        if((chunk.cells[i] & (Board.OPENED | Board.FLAGGED)) != 0) return false;
+
+        chunk.cells[i] |= Board.OPENED;
+        chunk.dirty = true;
+        if((chunk.cells[i] & Board.MINE) == 0)
+            revealedCells++;
+        else
+            exploded = true;
+        return true;
+    }
+
+    /**
+     * Toggles the flag on a closed cell. There are as many mines as the
+     * world is large, so flags are never refused.
+     *
+     * @return <code>true</code> if the flag state changed.
+     */
+    public boolean toggleFlagged(int y, int x) {
+        Chunk chunk = chunk(y >> CHUNK_BITS, x >> CHUNK_BITS);
+        int i = (y & CHUNK_MASK) << CHUNK_BITS | x & CHUNK_MASK;
+        if((chunk.cells[i] & Board.OPENED) != 0) return false;
+
+        chunk.cells[i] ^= Board.FLAGGED;
+        chunk.dirty = true;
+        flagCount += (chunk.cells[i] & Board.FLAGGED) != 0 ? 1 : -1;
+        return true;
+    }
+
+    /**
+     * Evicts the chunks farthest from the given cell once more than the
+     * allowed number are loaded, down to three quarters of it. Cells
+     * that were never touched are simply dropped, since they can be
+     * generated again.
+     * <p>
+     * Called between moves, so that a flood crossing many chunks never
+     * loses one it is still writing to.
+     */
+    public void trim(int y, int x) {
+        if(chunks.size() <= maxChunks) return;
+
+        long fy = y >> CHUNK_BITS;
+        long fx = x >> CHUNK_BITS;
+        List<Chunk> loaded = new ArrayList<>(chunks.values());
+        loaded.sort(Comparator.comparingLong((Chunk c) -> Math.max(Math.abs(c.cy - fy), Math.abs(c.cx - fx))).reversed());
+
+        int keep = maxChunks * 3 / 4;
+        for(int k = 0; chunks.size() > keep; ++k)
+            evict(loaded.get(k));
+        lastChunk = null;
+    }
+
+    private void evict(Chunk chunk) {
+        chunks.remove(key(chunk.cy, chunk.cx));
+        if(!chunk.dirty) return;
+
+        for(int y = 0; y < CHUNK_SIZE; ++y) {
+            long openedWord = 0, flaggedWord = 0;
+            for(int x = 0; x < CHUNK_SIZE; ++x) {
+                int cell = chunk.cells[y << CHUNK_BITS | x];
+                if((cell & Board.OPENED) != 0) openedWord |= 1L << x;
+                if((cell & Board.FLAGGED) != 0) flaggedWord |= 1L << x;
+            }
+            opened[y] = openedWord;
+            flagged[y] = flaggedWord;
+        }
+        try {
+            store.write(chunk.cy, chunk.cx, opened, flagged);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write chunk " + chunk.cy + "," + chunk.cx, e);
+        }
+    }
+
+    /**
+     * @return the cells opened by the last reveal or chord, packed as
+     *         by {@link #cellY(long)} and {@link #cellX(long)}. Only the
+     *         first entries, as many as that call returned, are
+     *         meaningful.
+     */
+    public long[] getRevealBuffer() {
+        return revealBuffer;
+    }
+
+    public boolean isOpened(int y, int x) {
+        return (cell(y, x) & Board.OPENED) != 0;
+    }
+
+    public boolean isFlagged(int y, int x) {
+        return (cell(y, x) & Board.FLAGGED) != 0;
+    }
+
+    public boolean isMine(int y, int x) {
+        return (cell(y, x) & Board.MINE) != 0;
+    }
+
+    /**
+     * @return the number of mines around the cell, or -1 for a mine.
+     */
+    public int getNumber(int y, int x) {
+        int cell = cell(y, x);
+        return (cell & Board.MINE) != 0 ? -1 : cell & Board.NUMBER_MASK;
+    }
+
+    /**
+     * @return <code>true</code> once a mine has been opened.
+     */
+    public boolean isExploded() {
+        return exploded;
+    }
+
+    public long getRevealedCells() {
+        return revealedCells;
+    }
+
+    public long getFlagCount() {
+        return flagCount;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public double getDensity() {
+        return density;
+    }
+
+    /**
+     * @return the number of chunks currently held in memory.
+     */
+    public int getLoadedChunks() {
+        return chunks.size();
+    }
+
+    /**
+     * Drops every chunk and deletes the store.
+     */
+    @Override
+    public void close() throws IOException {
+        chunks.clear();
+        lastChunk = null;
+        store.close();
+    }
+}
@@ -0,0 +1,200 @@
+package com.obada.minesweeper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+
+/**
+ * The endless game: an {@link EndlessBoard} in a window of its own.
+ * Clicks play as on a normal board, and a click on an opened number
+ * chords. Dragging or the arrow keys move around the world, and Home
+ * goes back to the start. The game ends at the first mine, scored by
+ * the cells revealed.
+ */
+class EndlessFrame extends JFrame {
+    private static final double DENSITY = 0.2;
+    private static final int DRAG_THRESHOLD = 4;
+    private static final int KEY_STEP = 4 * EndlessPanel.CELL_SIZE;
+
+    private final SplittableRandom seeds = new SplittableRandom();
+    private EndlessBoard board;
+    private final EndlessPanel panel;
+    private final JLabel statusLabel = new JLabel();
+    private Point lastPoint;
+    private boolean dragging;
+
+    private EndlessFrame(EndlessBoard board) {
+        this.board = board;
+        panel = new EndlessPanel(board);
+
+        setTitle("Minesweeper - Endless");
+        setIconImage(ResourceManager.getInstance().getIconImage());
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        var newWorld = new JButton("New world");
+        newWorld.setFocusable(false);
+        newWorld.addActionListener(e -> newWorld());
+        var statusBar = new JPanel(new BorderLayout(5, 0));
+        statusBar.setBorder(BorderFactory.createEmptyBorder(3, 5, 3, 5));
+        statusBar.add(statusLabel);
+        statusBar.add(newWorld, BorderLayout.EAST);
+        add(statusBar, BorderLayout.NORTH);
+        add(panel);
+
+        initInput();
+        pack();
+        updateStatus();
+    }
+
+    /**
+     * Opens a new endless game, its chunks stored in a temporary
+     * directory for as long as the window is open.
+     */
+    static void open(Component parent) {
+        EndlessBoard board;
+        try {
+            board = createBoard(new SplittableRandom().nextLong());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(parent, "Couldn't start an endless game\n" + e.getMessage(), "", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        var frame = new EndlessFrame(board);
+        frame.setLocationRelativeTo(parent);
+        frame.setVisible(true);
+    }
+
+    private static EndlessBoard createBoard(long seed) throws IOException {
+        return new EndlessBoard(seed, DENSITY, Files.createTempDirectory("minesweeper-endless"));
+    }
+
+    private void initInput() {
+        var mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                lastPoint = e.getPoint();
+                dragging = false;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if(lastPoint == null) return;
+                int dy = lastPoint.y - e.getY();
+                int dx = lastPoint.x - e.getX();
+                if(!dragging && Math.abs(dy) + Math.abs(dx) < DRAG_THRESHOLD) return;
+
+                dragging = true;
+                lastPoint = e.getPoint();
+                panel.pan(dy, dx);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                lastPoint = null;
+                if(!dragging)
+                    play(e);
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                int step = e.getWheelRotation() * 3 * EndlessPanel.CELL_SIZE;
+                if(e.isShiftDown())
+                    panel.pan(0, step);
+                else
+                    panel.pan(step, 0);
+            }
+        };
+        panel.addMouseListener(mouse);
+        panel.addMouseMotionListener(mouse);
+        panel.addMouseWheelListener(mouse);
+
+        bindKey(KeyEvent.VK_UP, "up", () -> panel.pan(-KEY_STEP, 0));
+        bindKey(KeyEvent.VK_DOWN, "down", () -> panel.pan(KEY_STEP, 0));
+        bindKey(KeyEvent.VK_LEFT, "left", () -> panel.pan(0, -KEY_STEP));
+        bindKey(KeyEvent.VK_RIGHT, "right", () -> panel.pan(0, KEY_STEP));
+        bindKey(KeyEvent.VK_HOME, "home", panel::centerOrigin);
+        bindKey(KeyEvent.VK_F2, "new", this::newWorld);
+    }
+
+    private void bindKey(int keyCode, String name, Runnable action) {
+        panel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(keyCode, 0), name);
+        panel.getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    private void play(MouseEvent e) {
+        if(board.isExploded()) return;
+
+        int y = panel.cellYAt(e.getY());
+        int x = panel.cellXAt(e.getX());
+        if(SwingUtilities.isRightMouseButton(e)) {
+            board.toggleFlagged(y, x);
+        } else if(SwingUtilities.isMiddleMouseButton(e) || board.isOpened(y, x)) {
+            board.chord(y, x);
+        } else if(SwingUtilities.isLeftMouseButton(e)) {
+            board.revealClearSection(y, x);
+        }
+        board.trim(panel.getCenterY(), panel.getCenterX());
+        panel.repaint();
+        updateStatus();
+
+        if(board.isExploded())
+            gameOver();
+    }
+
+    private void gameOver() {
+        panel.setShowMines(true);
+        int result = JOptionPane.showConfirmDialog(
+                this,
+                "Game Over\nYou revealed " + board.getRevealedCells() + " cells.\nStart a new world?",
+                "",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.ERROR_MESSAGE);
+        if(result == JOptionPane.YES_OPTION)
+            newWorld();
+    }
+
+    private void newWorld() {
+        EndlessBoard next;
+        try {
+            next = createBoard(seeds.nextLong());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Couldn't start a new world\n" + e.getMessage(), "", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        closeBoard();
+        board = next;
+        panel.setBoard(board);
+        updateStatus();
+    }
+
+    private void updateStatus() {
+        statusLabel.setText("Revealed " + board.getRevealedCells() + "    Flags " + board.getFlagCount());
+    }
+
+    private void closeBoard() {
+        try {
+            board.close();
+        } catch (IOException e) {
+            System.err.println("Could not delete the endless chunk store: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        closeBoard();
+        super.dispose();
+    }
+}
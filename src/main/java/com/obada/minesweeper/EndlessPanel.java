@@ -0,0 +1,130 @@
+package com.obada.minesweeper;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the part of an {@link EndlessBoard} under a camera that can be
+ * moved anywhere in the world. Cells are blitted from the same tile
+ * atlas as {@link BoardPanel}, and only the visible cells are ever
+ * looked at, so only their chunks are loaded.
+ */
+class EndlessPanel extends JComponent {
+    static final int CELL_SIZE = 24;
+    // keeps every cell coordinate within an int
+    private static final long LIMIT = (1L << 30) * CELL_SIZE;
+
+    private final ResourceManager resourceManager = ResourceManager.getInstance();
+    private EndlessBoard board;
+    private BufferedImage atlas;
+    private long centerY;
+    private long centerX;
+    private boolean showMines;
+
+    EndlessPanel(EndlessBoard board) {
+        setBoard(board);
+        setOpaque(true);
+        setBackground(resourceManager.closedCell);
+        setPreferredSize(new Dimension(30 * CELL_SIZE, 20 * CELL_SIZE));
+        atlas = BoardPanel.createAtlas(getGraphicsConfiguration(), CELL_SIZE);
+        if(!resourceManager.isLoaded())
+            resourceManager.whenLoaded(() -> {
+                atlas = BoardPanel.createAtlas(getGraphicsConfiguration(), CELL_SIZE);
+                repaint();
+            });
+    }
+
+    public void setBoard(EndlessBoard board) {
+        this.board = board;
+        showMines = false;
+        centerOrigin();
+    }
+
+    /**
+     * Moves the camera back over the starting cell.
+     */
+    public void centerOrigin() {
+        centerY = CELL_SIZE / 2;
+        centerX = CELL_SIZE / 2;
+        repaint();
+    }
+
+    /**
+     * Moves the camera by the given number of pixels.
+     */
+    public void pan(int dy, int dx) {
+        centerY = Math.max(-LIMIT, Math.min(LIMIT, centerY + dy));
+        centerX = Math.max(-LIMIT, Math.min(LIMIT, centerX + dx));
+        board.trim(getCenterY(), getCenterX());
+        repaint();
+    }
+
+    /**
+     * Shows the closed mines too, once the game is lost.
+     */
+    public void setShowMines(boolean showMines) {
+        this.showMines = showMines;
+        repaint();
+    }
+
+    private long top() {
+        return centerY - getHeight() / 2;
+    }
+
+    private long left() {
+        return centerX - getWidth() / 2;
+    }
+
+    public int cellYAt(int py) {
+        return (int) Math.floorDiv(top() + py, CELL_SIZE);
+    }
+
+    public int cellXAt(int px) {
+        return (int) Math.floorDiv(left() + px, CELL_SIZE);
+    }
+
+    public int getCenterY() {
+        return (int) Math.floorDiv(centerY, CELL_SIZE);
+    }
+
+    public int getCenterX() {
+        return (int) Math.floorDiv(centerX, CELL_SIZE);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Rectangle clip = g.getClipBounds();
+        if(clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+        long top = top();
+        long left = left();
+        int y0 = cellYAt(clip.y);
+        int x0 = cellXAt(clip.x);
+        int y1 = cellYAt(clip.y + clip.height - 1);
+        int x1 = cellXAt(clip.x + clip.width - 1);
+
+        for(int y = y0; y <= y1; ++y)
+            for(int x = x0; x <= x1; ++x) {
+                int px = (int) ((long) x * CELL_SIZE - left);
+                int py = (int) ((long) y * CELL_SIZE - top);
+                int sx = tileOf(y, x) * CELL_SIZE;
+                g.drawImage(atlas, px, py, px + CELL_SIZE, py + CELL_SIZE, sx, 0, sx + CELL_SIZE, CELL_SIZE, null);
+            }
+
+        if(Metrics.ENABLED)
+            Metrics.recordRepaint(start, (x1 - x0 + 1) * (y1 - y0 + 1));
+    }
+
+    private int tileOf(int y, int x) {
+        if(!board.isOpened(y, x)) {
+            if(board.isFlagged(y, x)) return BoardPanel.TILE_FLAG;
+            return showMines && board.isMine(y, x) ? BoardPanel.TILE_MINE : BoardPanel.TILE_CLOSED;
+        }
+
+        int number = board.getNumber(y, x);
+        return number < 0 ? BoardPanel.TILE_MINE : number;
+    }
+}
@@ -0,0 +1,150 @@
+package com.obada.minesweeper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A blocking client of {@link GameServer}. Every move waits for its
+ * reply, and the race results of other players that arrive in between
+ * are collected on the side.
+ */
+public class GameClient implements AutoCloseable {
+    /**
+     * The cells a move changed.
+     *
+     * @param status    {@link Protocol#PLAYING}, {@link Protocol#WON} or
+     *                  {@link Protocol#LOST}.
+     * @param positions <code>y * width + x</code> of each cell, ascending.
+     * @param tiles     The new tile of each cell: a number, or one of
+     *                  the <code>TILE_</code> constants of {@link Protocol}.
+     */
+    public record Diff(int status, int mineCounter, int[] positions, byte[] tiles) {
+        public int size() {
+            return positions.length;
+        }
+    }
+
+    /**
+     * Another player of the room finished the game.
+     */
+    public record Finish(int player, int status, long timeMillis) { }
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final List<Finish> finishes = new ArrayList<>();
+    private int player = -1;
+
+    public GameClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Starts a game, in the room of everyone else playing this board.
+     *
+     * @return the number of players in the room, this one included.
+     */
+    public int join(int width, int height, int mineNumber, GenerationMode generationMode, long seed) throws IOException {
+        out.write(Protocol.JOIN);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(mineNumber);
+        out.write(generationMode.ordinal());
+        out.writeLong(seed);
+        out.flush();
+
+        expect(Protocol.JOINED);
+        player = in.readInt();
+        return in.readInt();
+    }
+
+    public Diff reveal(int y, int x) throws IOException {
+        return move(Protocol.REVEAL, y, x);
+    }
+
+    public Diff flag(int y, int x) throws IOException {
+        return move(Protocol.FLAG, y, x);
+    }
+
+    public Diff chord(int y, int x) throws IOException {
+        return move(Protocol.CHORD, y, x);
+    }
+
+    private Diff move(int type, int y, int x) throws IOException {
+        out.write(type);
+        out.writeInt(y);
+        out.writeInt(x);
+        out.flush();
+
+        expect(Protocol.STATE);
+        return readDiff(in);
+    }
+
+    /**
+     * Reads a {@link Protocol#STATE} message past its type byte.
+     */
+    static Diff readDiff(DataInput in) throws IOException {
+        int status = in.readUnsignedByte();
+        int mineCounter = Protocol.unzigzag(Protocol.readVarint(in));
+        int count = (int) Protocol.readVarint(in);
+        int[] positions = new int[count];
+        byte[] tiles = new byte[count];
+        int position = 0;
+        for(int k = 0; k < count; ++k) {
+            long cell = Protocol.readVarint(in);
+            position += (int) (cell >>> 4);
+            positions[k] = position;
+            tiles[k] = (byte) (cell & 0xF);
+        }
+        return new Diff(status, mineCounter, positions, tiles);
+    }
+
+    /**
+     * Reads up to the next message of the given type, keeping the race
+     * results on the way.
+     */
+    private void expect(int type) throws IOException {
+        while(true) {
+            int next = in.readUnsignedByte();
+            if(next == type)
+                return;
+
+            switch (next) {
+                case Protocol.FINISHED -> finishes.add(new Finish(in.readInt(), in.readUnsignedByte(), in.readLong()));
+                case Protocol.ERROR -> throw new ProtocolException(in.readUTF());
+                default -> throw new ProtocolException("Unexpected message " + next);
+            }
+        }
+    }
+
+    /**
+     * @return this client's player number, -1 before joining.
+     */
+    public int getPlayer() {
+        return player;
+    }
+
+    /**
+     * @return the other players who finished, as far as the replies
+     *         read so far tell.
+     */
+    public List<Finish> getFinishes() {
+        return finishes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
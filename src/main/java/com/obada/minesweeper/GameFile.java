@@ -0,0 +1,149 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves and loads a game in progress. The file is a fixed header
+ * followed by the mine, opened and flagged layers of the {@link Board}
+ * as little-endian bitsets, one bit per cell, and is read and written
+ * through a memory mapping, so a 10k x 10k board is about 37 MB moved
+ * without any per-cell objects.
+ * <pre>
+ *  0  int   magic "MSWP"
+ *  4  int   version
+ *  8  int   width
+ * 12  int   height
+ * 16  int   mine number
+ * 20  byte  generation mode
+ * 21  byte  1 once the mines are placed
+ * 22  byte  topology, 0 for the square grid
+ * 23  byte  reserved
+ * 24  long  seed
+ * 32  long  elapsed milliseconds
+ * 40  long[] mine, opened and flagged layers
+ * </pre>
+ */
+public final class GameFile {
+    public static final String EXTENSION = "msw";
+
+    private static final int MAGIC = 0x5057534D; // "MSWP" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+
+    /**
+     * A loaded game.
+     *
+     * @param elapsedMillis The play time when the game was saved.
+     */
+    public record SavedGame(Board board, long elapsedMillis) { }
+
+    private GameFile() { }
+
+    /**
+     * Writes the board to <code>path</code>. The file is written next to
+     * the target and moved over it, so an interrupted save never leaves a
+     * broken file behind.
+     */
+    public static void save(Path path, Board board, long elapsedMillis) throws IOException {
+        int words = layerWords(board.getWidth(), board.getHeight());
+        long size = HEADER_SIZE + 3L * words * Long.BYTES;
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(board.getWidth())
+                    .putInt(board.getHeight())
+                    .putInt(board.getMineNumber())
+                    .put((byte) board.getGenerationMode().ordinal())
+                    .put((byte) (board.isGenerated() ? 1 : 0))
+                    .put((byte) board.getTopology().ordinal())
+                    .put((byte) 0)
+                    .putLong(board.getSeed())
+                    .putLong(elapsedMillis);
+
+            board.packLayers(layer(buffer, 0, words), layer(buffer, 1, words), layer(buffer, 2, words));
+            buffer.force();
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a game written by {@link #save(Path, Board, long)}.
+     *
+     * @throws IOException If the file can't be read, or isn't a saved game
+     *                     of a version this build understands.
+     */
+    public static SavedGame load(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size < HEADER_SIZE)
+                throw new IOException(path + " is not a saved game");
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if(buffer.getInt() != MAGIC)
+                throw new IOException(path + " is not a saved game");
+            int version = buffer.getInt();
+            if(version != VERSION)
+                throw new IOException("Unsupported save version " + version);
+
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int mineNumber = buffer.getInt();
+            int mode = buffer.get();
+            boolean generated = buffer.get() != 0;
+            int topology = buffer.get();
+            buffer.get();
+            long seed = buffer.getLong();
+            long elapsedMillis = buffer.getLong();
+
+            if(width <= 0 || height <= 0 || width > Difficulty.MAX_LENGTH || height > Difficulty.MAX_LENGTH
+                    || mode < 0 || mode >= GenerationMode.values().length
+                    || topology < 0 || topology >= Topology.values().length)
+                throw new IOException(path + " has an invalid header");
+            int words = layerWords(width, height);
+            if(size != HEADER_SIZE + 3L * words * Long.BYTES)
+                throw new IOException(path + " is truncated");
+
+            try {
+                var board = new Board(width, height, mineNumber, Topology.values()[topology]);
+                board.setGenerationMode(GenerationMode.values()[mode]);
+                LongBuffer mines = layer(buffer, 0, words);
+                LongBuffer opened = layer(buffer, 1, words);
+                LongBuffer flagged = layer(buffer, 2, words);
+                board.restore(seed, generated, mines, opened, flagged);
+                return new SavedGame(board, elapsedMillis);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + " holds an invalid board: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static LongBuffer layer(MappedByteBuffer buffer, int layer, int words) {
+        return buffer.slice(HEADER_SIZE + layer * words * Long.BYTES, words * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asLongBuffer();
+    }
+
+    private static int layerWords(int width, int height) {
+        return (int) (((long) width * height + 63) / 64);
+    }
+}
@@ -0,0 +1,35 @@
+package com.obada.minesweeper;
+
+/**
+ * The outcome of one finished game, as kept by the {@link StatsStore}.
+ *
+ * @param timeMillis The play time.
+ * @param threeBV    The 3BV of the board, see {@link Board#get3BV()}.
+ * @param clicks     The moves the player made.
+ * @param finishedAt When the game ended, in epoch milliseconds.
+ */
+public record GameRecord(int width, int height, int mineNumber, GenerationMode generationMode,
+                         boolean won, long timeMillis, int threeBV, int clicks, long finishedAt) {
+
+    /**
+     * @return the 3BV cleared per second, 0 for an instant game.
+     */
+    public double threeBVPerSecond() {
+        return timeMillis == 0 ? 0 : threeBV * 1000.0 / timeMillis;
+    }
+
+    /**
+     * @return the 3BV over the moves made, 1 for a perfect game.
+     */
+    public double efficiency() {
+        return clicks == 0 ? 0 : (double) threeBV / clicks;
+    }
+
+    /**
+     * @return the key of the board this game was played on, as used by
+     *         {@link StatsStore}.
+     */
+    public String boardKey() {
+        return StatsStore.boardKey(width, height, mineNumber, generationMode);
+    }
+}
@@ -0,0 +1,302 @@
+package com.obada.minesweeper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hosts games for many players in one JVM over the {@link Protocol}.
+ * Every connection is served by its own virtual thread with plain
+ * blocking reads, and owns a small {@link GameSession}, so ten thousand
+ * players cost ten thousand boards and parked threads and nothing more.
+ * <p>
+ * Players who join with the same board and seed share a room and race
+ * on their own copies of that board. When one of them finishes, the
+ * others are told with a {@link Protocol#FINISHED} message. Outside of
+ * {@link GenerationMode#CLASSIC} the mines depend on each player's
+ * first click, so their boards differ.
+ */
+public class GameServer implements AutoCloseable {
+    /**
+     * The largest board a client may ask for, in cells.
+     */
+    static final int MAX_CELLS = 1 << 20;
+    private static final int BUFFER_SIZE = 512;
+
+    private record RoomKey(int width, int height, int mineNumber, GenerationMode generationMode, long seed) { }
+
+    private record Finished(int player, int status, long timeMillis) { }
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<RoomKey, List<Connection>> rooms = new ConcurrentHashMap<>();
+    private final AtomicInteger nextPlayer = new AtomicInteger();
+    private final AtomicInteger connected = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Binds to the given port on the loopback address, 0 for any free
+     * port.
+     */
+    public GameServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 4096, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Starts accepting connections on a thread of its own.
+     */
+    public void start() {
+        Thread.ofPlatform().name("game-server").start(this::accept);
+    }
+
+    private void accept() {
+        while(!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> new Connection(socket).serve());
+            } catch (IOException e) {
+                if(!closed)
+                    System.err.println("Could not accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of open connections.
+     */
+    public int getConnected() {
+        return connected.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    /**
+     * One client: reads its messages in order and plays them on its
+     * session. Race results of the other players of the room are queued
+     * and written by a task of this connection, so a slow client never
+     * holds up the player who finished. Writes are locked, since that
+     * task and the reading thread both write.
+     */
+    private final class Connection {
+        private final Socket socket;
+        private final int player = nextPlayer.getAndIncrement();
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private final Queue<Finished> finishes = new ConcurrentLinkedQueue<>();
+        // set while a task writes the queued race results
+        private final AtomicBoolean delivering = new AtomicBoolean();
+        private DataOutputStream out;
+        private GameSession session;
+        private RoomKey room;
+
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        void serve() {
+            connected.incrementAndGet();
+            try(socket) {
+                var in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+                for(int type; (type = in.read()) >= 0; ) {
+                    switch (type) {
+                        case Protocol.JOIN -> join(in.readInt(), in.readInt(), in.readInt(), in.readByte(), in.readLong());
+                        case Protocol.REVEAL, Protocol.FLAG, Protocol.CHORD -> move(type, in.readInt(), in.readInt());
+                        default -> {
+                            error("Unknown message " + type);
+                            return;
+                        }
+                    }
+                }
+            } catch (EOFException | SocketException e) {
+                // the client went away
+            } catch (IOException e) {
+                System.err.println("Connection of player " + player + " failed: " + e.getMessage());
+            } finally {
+                leave();
+                connected.decrementAndGet();
+            }
+        }
+
+        private void join(int width, int height, int mineNumber, int mode, long seed) throws IOException {
+            if(mode < 0 || mode >= GenerationMode.values().length) {
+                error("Unknown generation mode " + mode);
+                return;
+            }
+            if((long) width * height > MAX_CELLS) {
+                error("Boards are limited to " + MAX_CELLS + " cells");
+                return;
+            }
+
+            GenerationMode generationMode = GenerationMode.values()[mode];
+            try {
+                session = new GameSession(width, height, mineNumber, generationMode, seed);
+            } catch (IllegalArgumentException e) {
+                error(e.getMessage());
+                return;
+            }
+
+            leave();
+            room = new RoomKey(width, height, mineNumber, generationMode, seed);
+            List<Connection> players = rooms.compute(room, (key, list) -> {
+                if(list == null)
+                    list = new CopyOnWriteArrayList<>();
+                list.add(this);
+                return list;
+            });
+
+            writeLock.lock();
+            try {
+                out.write(Protocol.JOINED);
+                out.writeInt(player);
+                out.writeInt(players.size());
+                out.flush();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void move(int type, int y, int x) throws IOException {
+            if(session == null) {
+                error("Join a game first");
+                return;
+            }
+
+            int before = session.getStatus();
+            int length = session.move(type, y, x);
+            writeLock.lock();
+            try {
+                out.write(session.getReply(), 0, length);
+                out.flush();
+            } finally {
+                writeLock.unlock();
+            }
+
+            if(before == Protocol.PLAYING && session.getStatus() != Protocol.PLAYING)
+                announce(session.getStatus(), session.getTimeMillis());
+        }
+
+        /**
+         * Tells the other players of the room that this one finished.
+         */
+        private void announce(int status, long timeMillis) {
+            var finished = new Finished(player, status, timeMillis);
+            for(Connection other : rooms.getOrDefault(room, List.of()))
+                if(other != this)
+                    other.deliver(finished);
+        }
+
+        private void deliver(Finished finished) {
+            finishes.add(finished);
+            if(!delivering.compareAndSet(false, true))
+                return;
+            try {
+                connections.execute(this::writeFinishes);
+            } catch (RejectedExecutionException e) {
+                // the server is closing
+            }
+        }
+
+        private void writeFinishes() {
+            do {
+                writeLock.lock();
+                try {
+                    for(Finished finished; (finished = finishes.poll()) != null; ) {
+                        out.write(Protocol.FINISHED);
+                        out.writeInt(finished.player());
+                        out.write(finished.status());
+                        out.writeLong(finished.timeMillis());
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    // that player is leaving, its own thread cleans up
+                    finishes.clear();
+                } finally {
+                    writeLock.unlock();
+                }
+                delivering.set(false);
+                // a result queued after the poll above and before the reset
+            } while(!finishes.isEmpty() && delivering.compareAndSet(false, true));
+        }
+
+        private void leave() {
+            if(room == null) return;
+            rooms.computeIfPresent(room, (key, list) -> {
+                list.remove(this);
+                return list.isEmpty() ? null : list;
+            });
+            room = null;
+        }
+
+        private void error(String message) throws IOException {
+            writeLock.lock();
+            try {
+                out.write(Protocol.ERROR);
+                out.writeUTF(message);
+                out.flush();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+    }
+
+    /**
+     * Entry point for <code>--server</code>.
+     */
+    public static void main(String[] args) {
+        int port = Protocol.DEFAULT_PORT;
+        try {
+            for(int i = 0; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "--server" -> { }
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -jar Minesweeper.jar --server [--port P]");
+            System.exit(1);
+            return;
+        }
+
+        try {
+            var server = new GameServer(port);
+            server.start();
+            System.out.printf(Locale.ROOT, "Listening on %s:%d%n", InetAddress.getLoopbackAddress().getHostAddress(), server.getPort());
+        } catch (IOException e) {
+            System.err.println("Could not start the server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.obada.minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * One player's game on the server: the rules of {@link MainFrame}
+ * without any Swing, answering every move with a {@link Protocol#STATE}
+ * message that holds only the cells the move changed.
+ * <p>
+ * A session is driven by a single connection thread and is not thread
+ * safe. The reply buffers are reused, so a move allocates nothing once
+ * they have grown to the largest reply.
+ */
+class GameSession {
+    private final Board board;
+    private final int width;
+    private int status = Protocol.PLAYING;
+    private long startNanos = -1;
+    private long timeMillis;
+    private int[] cells = new int[64];
+    private byte[] reply = new byte[256];
+
+    GameSession(int width, int height, int mineNumber, GenerationMode generationMode, long seed) {
+        board = new Board(width, height, mineNumber);
+        board.setGenerationMode(generationMode);
+        board.reset(seed);
+        this.width = width;
+    }
+
+    /**
+     * Plays a move and encodes the reply into {@link #getReply()}.
+     * Moves on a finished game, outside the board or that change
+     * nothing get a reply without cells.
+     *
+     * @param type {@link Protocol#REVEAL}, {@link Protocol#FLAG} or
+     *             {@link Protocol#CHORD}.
+     * @return the length of the reply.
+     */
+    int move(int type, int y, int x) {
+        int count = 0;
+        if(status == Protocol.PLAYING && !board.isInvalidCell(y, x)) {
+            if(startNanos < 0)
+                startNanos = System.nanoTime();
+
+            switch (type) {
+                case Protocol.REVEAL -> {
+                    if(!board.isFlagged(y, x))
+                        count = collectRevealed(board.revealClearSection(y, x));
+                }
+                case Protocol.CHORD -> count = collectRevealed(board.chord(y, x));
+                case Protocol.FLAG -> {
+                    if(board.toggleFlagged(y, x)) {
+                        int tile = board.isFlagged(y, x) ? Protocol.TILE_FLAG : Protocol.TILE_CLOSED;
+                        cells[count++] = (y * width + x) << 4 | tile;
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown move " + type);
+            }
+            count = checkFinish(count);
+        }
+        return encode(count);
+    }
+
+    private int collectRevealed(int revealed) {
+        int[] buffer = board.getRevealBuffer();
+        ensureCells(revealed);
+        for(int k = 0; k < revealed; ++k) {
+            int i = buffer[k];
+            int y = board.getCellY(i);
+            int x = board.getCellX(i);
+            int number = board.getNumber(i);
+            cells[k] = (y * width + x) << 4 | (number < 0 ? Protocol.TILE_MINE : number);
+            if(number < 0)
+                status = Protocol.LOST;
+        }
+        return revealed;
+    }
+
+    /**
+     * Ends the game when a mine was opened, adding every other mine to
+     * the reply, or when every safe cell is open.
+     */
+    private int checkFinish(int count) {
+        if(status == Protocol.LOST) {
+            ensureCells(count + board.getMineNumber());
+            for(int y = 0; y < board.getHeight(); ++y)
+                for(int x = 0; x < width; ++x)
+                    if(board.isMine(y, x) && !board.isOpened(y, x))
+                        cells[count++] = (y * width + x) << 4 | Protocol.TILE_MINE;
+        } else if(board.isWon()) {
+            status = Protocol.WON;
+        }
+
+        if(status != Protocol.PLAYING)
+            timeMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        return count;
+    }
+
+    private void ensureCells(int count) {
+        if(cells.length < count)
+            cells = Arrays.copyOf(cells, Math.max(count, cells.length * 2));
+    }
+
+    /**
+     * Sorts the changed cells by position, the tile in the low bits
+     * does not disturb the order, and writes them as gaps.
+     */
+    private int encode(int count) {
+        Arrays.sort(cells, 0, count);
+        // type and status, then varints of at most 5 bytes
+        int size = 2 + 5 + 5 + count * 5;
+        if(reply.length < size)
+            reply = new byte[Math.max(size, reply.length * 2)];
+
+        reply[0] = (byte) Protocol.STATE;
+        reply[1] = (byte) status;
+        int offset = Protocol.writeVarint(reply, 2, Protocol.zigzag(board.getMineCounter()));
+        offset = Protocol.writeVarint(reply, offset, count);
+        int previous = 0;
+        for(int k = 0; k < count; ++k) {
+            int position = cells[k] >>> 4;
+            offset = Protocol.writeVarint(reply, offset, (long) (position - previous) << 4 | cells[k] & 0xF);
+            previous = position;
+        }
+        return offset;
+    }
+
+    byte[] getReply() {
+        return reply;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the time from the first move to the end of the game.
+     */
+    long getTimeMillis() {
+        return timeMillis;
+    }
+}
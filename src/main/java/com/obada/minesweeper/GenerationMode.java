@@ -0,0 +1,23 @@
+package com.obada.minesweeper;
+
+/**
+ * When and how a {@link Board} places its mines.
+ */
+public enum GenerationMode {
+    /** Mines are placed as soon as the board is reset. */
+    CLASSIC("Classic"),
+    /** Mines are placed on the first reveal, away from the clicked cell and its neighbours. */
+    FIRST_CLICK_SAFE("Safe first click"),
+    /** Like {@link #FIRST_CLICK_SAFE}, and the board can be cleared without guessing. */
+    NO_GUESS("No guessing");
+
+    private final String title;
+
+    GenerationMode(String title) {
+        this.title = title;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
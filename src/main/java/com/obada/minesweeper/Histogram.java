@@ -0,0 +1,86 @@
+package com.obada.minesweeper;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative values, in the spirit of
+ * HdrHistogram: values below 64 get a bucket each, and every power of
+ * two above is split into 32 buckets, so any recorded value is known to
+ * within about 3% across the whole <code>long</code> range. Recording is
+ * a single atomic increment and never allocates, so it can be called
+ * from any thread in the middle of the game loop.
+ */
+public class Histogram {
+    private static final int LINEAR_BITS = 6;
+    private static final int LINEAR = 1 << LINEAR_BITS;
+    private static final int HALF = LINEAR / 2;
+    private static final int BUCKETS = (64 - LINEAR_BITS) * HALF + LINEAR;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long value) {
+        counts.incrementAndGet(bucketOf(Math.max(0, value)));
+    }
+
+    static int bucketOf(long value) {
+        if(value < LINEAR)
+            return (int) value;
+
+        int shift = 64 - Long.numberOfLeadingZeros(value) - LINEAR_BITS;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    /**
+     * @return the middle of the values the bucket covers.
+     */
+    static long valueOf(int bucket) {
+        if(bucket < LINEAR)
+            return bucket;
+
+        int shift = bucket / HALF - 1;
+        long low = (long) (bucket % HALF + HALF) << shift;
+        return low + ((1L << shift) >>> 1);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for(int i = 0; i < BUCKETS; ++i)
+            count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * @param percentile Between 0 and 100.
+     * @return the value at the given percentile, 0 when nothing was
+     *         recorded.
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for(int i = 0; i < BUCKETS; ++i)
+            count += snapshot[i] = counts.get(i);
+        if(count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; ++i) {
+            seen += snapshot[i];
+            if(seen >= rank)
+                return valueOf(i);
+        }
+        return valueOf(BUCKETS - 1);
+    }
+
+    public long getMax() {
+        for(int i = BUCKETS - 1; i >= 0; --i)
+            if(counts.get(i) != 0)
+                return valueOf(i);
+        return 0;
+    }
+
+    public void reset() {
+        for(int i = 0; i < BUCKETS; ++i)
+            counts.set(i, 0);
+    }
+}
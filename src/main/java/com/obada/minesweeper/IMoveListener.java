@@ -0,0 +1,6 @@
+package com.obada.minesweeper;
+
+@FunctionalInterface
+public interface IMoveListener {
+    void moved(MoveType type, int index);
+}
@@ -0,0 +1,58 @@
+package com.obada.minesweeper;
+
+import java.util.SplittableRandom;
+
+/**
+ * A way of playing a headless game for the {@link Simulator}.
+ */
+@FunctionalInterface
+public interface IStrategy {
+    /**
+     * Plays the freshly reset board until it is won or a mine is
+     * opened. The solver is cleared and belongs to the board.
+     *
+     * @return the number of clicks that opened at least one cell.
+     */
+    int play(Board board, Solver solver, SplittableRandom rand);
+
+    /**
+     * Opens random closed cells. The board's generation mode decides
+     * whether the first one is safe.
+     */
+    IStrategy RANDOM_SAFE = (board, solver, rand) -> {
+        int area = board.getWidth() * board.getHeight();
+        int clicks = 0;
+        while(!board.isWon()) {
+            int position = rand.nextInt(area);
+            int y = position / board.getWidth();
+            int x = position % board.getWidth();
+            if(board.isOpened(y, x)) continue;
+
+            clicks++;
+            if(board.isGenerated() && board.isMine(y, x)) {
+                board.revealCell(y, x);
+                break;
+            }
+            board.revealClearSection(y, x);
+        }
+        return clicks;
+    };
+
+    /**
+     * Plays every deduction the {@link Solver} finds and lets its
+     * probability engine pick a cell when there are none.
+     */
+    IStrategy SOLVER = (board, solver, rand) -> {
+        int first = board.index(board.getHeight() / 2, board.getWidth() / 2);
+        solver.reveal(first);
+        if(board.isMine(first))
+            return solver.getClicks();
+
+        while(!solver.solve()) {
+            int cell = solver.guess();
+            if(cell == -1 || board.isMine(cell))
+                break;
+        }
+        return solver.getClicks();
+    };
+}
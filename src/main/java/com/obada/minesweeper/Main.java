@@ -2,6 +2,21 @@ package com.obada.minesweeper;
 
 public class Main {
     public static void main(String[] args) {
+        if(args.length > 0 && args[0].equals("--simulate")) {
+            Simulator.main(args);
+            return;
+        }
+        if(args.length > 0 && args[0].equals("--analyze")) {
+            BoardAnalyzer.main(args);
+            return;
+        }
+        if(args.length > 0 && args[0].equals("--server")) {
+            GameServer.main(args);
+            return;
+        }
+
+        // starts decoding the fonts and images while the frame is built
+        ResourceManager.getInstance();
         java.awt.EventQueue.invokeLater(() -> new MainFrame().setVisible(true));
     }
 }
@@ -2,211 +2,711 @@ package com.obada.minesweeper;
 
 import java.awt.*;
 import java.awt.event.*;
-import java.util.*;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 public class MainFrame extends JFrame {
 
-    private final int GRID_LENGTH = 16; // 16
-    private final int MINE_NUMBER = 40; // 40
-    private final int MINIMUM_SIZE_CHANGE = 10;
-    private       int mineCounter = MINE_NUMBER;
-    private       int revealedCells = 0;
-    final int[] dy = {-1, -1, 0, 1, 1,  1,  0, -1};
-    final int[] dx = { 0,  1, 1, 1, 0, -1, -1, -1};
-
-    private final MButton[][] buttons = new MButton[GRID_LENGTH][GRID_LENGTH];
+    private final int PREFERRED_CELL_SIZE = 30;
+    // cells the cursor jumps with shift held
+    private static final int CURSOR_JUMP = 10;
+
+    private Difficulty difficulty = Difficulty.INTERMEDIATE;
+    private GenerationMode generationMode = GenerationMode.CLASSIC;
+    private Topology topology = Topology.SQUARE;
+    private Board board = new Board(difficulty.getWidth(), difficulty.getHeight(), difficulty.getMineNumber());
+    private final BoardPanel boardPanel = new BoardPanel(board);
+    private Solver solver;
+    private MoveLog moveLog;
+    private MoveLog lastGameLog;
+    // null outside of practice mode
+    private UndoHistory history;
+    // whether practice mode was on at any point of this game
+    private boolean practiced;
+    // whether a hint or auto play was used in this game
+    private boolean assisted;
+    private final int[] neighbourBuffer = new int[8];
+    // moves waiting to be played, each cell << 2 | move type
+    private int[] pendingMoves = new int[16];
+    private long[] pendingTimes = new long[16];
+    private int pendingCount;
+    private boolean drainPending;
+    // the keyboard cursor, -1 until an arrow key is pressed
+    private int cursor = -1;
     private final JLabel lblMineCounter = new JLabel();
     private final JLabel timeLabel = new JLabel();
-    private final JPanel buttonsPanel = new JPanel();
     private final JPanel titlePanel = new JPanel();
-    private MouseEvent lastEvt;
-    private Dimension lastSize;
+    private final JButton restartButton = new JButton();
+    private final Map<Difficulty, JRadioButtonMenuItem> difficultyItems = new EnumMap<>(Difficulty.class);
+    private final Map<GenerationMode, JRadioButtonMenuItem> generationModeItems = new EnumMap<>(GenerationMode.class);
+    private final Map<Topology, JRadioButtonMenuItem> topologyItems = new EnumMap<>(Topology.class);
+    private JFileChooser fileChooser;
     private final TimeKeeper timeKeeper;
+    private final StatsStore stats = new StatsStore(StatsStore.defaultPath());
     private final ResourceManager resourceManager = ResourceManager.getInstance();
-    private ImageIcon mineIcon;
-    private ImageIcon flagIcon;
 
     public MainFrame() throws HeadlessException {
-        // debugging purposes
-        if(MINE_NUMBER > GRID_LENGTH * GRID_LENGTH) {
-            System.out.println(MINE_NUMBER + " mines cant fit in a " + GRID_LENGTH + "x" + GRID_LENGTH + " grid");
-            System.exit(1);
-        }
-
         initFrame();
+        initMenuBar();
         initTitleBar();
-        initButtons();
-        addWindowEventListeners();
-        lastSize = this.getSize();
+        initBoard();
         timeKeeper = new TimeKeeper(time -> timeLabel.setText(formatNumber(time)));
+        stats.open();
+        resourceManager.whenLoaded(this::updateResources);
+    }
+
+    /**
+     * Swaps the placeholder fonts and images shown at startup for the
+     * real ones.
+     */
+    private void updateResources() {
+        this.setIconImage(resourceManager.getIconImage());
+        timeLabel.setFont(resourceManager.getTitlePanelFont());
+        lblMineCounter.setFont(resourceManager.getTitlePanelFont());
+        restartButton.setIcon(ResourceManager.getResizedIcon(resourceManager.getRestartGameImage(), restartButton, true));
+    }
+
+    private void initFrame() {
+        this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        var dimension = new Dimension(492, 610);
+        this.setMinimumSize(dimension);
+        this.setSize(dimension);
+        this.setLayout(new BorderLayout());
+        this.setLocationRelativeTo(null);
+        this.setTitle("Minesweeper");
+        this.setIconImage(resourceManager.getIconImage());
+    }
+
+    private void initMenuBar() {
+        var menuBar = new JMenuBar();
+        var gameMenu = new JMenu("Game");
+        gameMenu.setMnemonic(KeyEvent.VK_G);
+
+        var newGame = new JMenuItem("New");
+        newGame.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F2, 0));
+        newGame.addActionListener(e -> restartGame());
+        gameMenu.add(newGame);
+
+        var save = new JMenuItem("Save...");
+        save.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.CTRL_DOWN_MASK));
+        save.addActionListener(e -> saveGame());
+        gameMenu.add(save);
+
+        var load = new JMenuItem("Load...");
+        load.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, InputEvent.CTRL_DOWN_MASK));
+        load.addActionListener(e -> loadGame());
+        gameMenu.add(load);
+        gameMenu.addSeparator();
+
+        var hint = new JMenuItem("Hint");
+        hint.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, 0));
+        hint.addActionListener(e -> showHint());
+        gameMenu.add(hint);
+
+        var replay = new JMenuItem("Replay");
+        replay.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_R, 0));
+        replay.addActionListener(e -> showReplay());
+        gameMenu.add(replay);
+
+        var autoPlay = new JMenuItem("Auto play move");
+        autoPlay.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_A, 0));
+        autoPlay.addActionListener(e -> autoPlay());
+        gameMenu.add(autoPlay);
+        gameMenu.addSeparator();
+
+        var practice = new JCheckBoxMenuItem("Practice mode");
+        practice.addActionListener(e -> setPractice(practice.isSelected()));
+        gameMenu.add(practice);
+
+        var undo = new JMenuItem("Undo");
+        undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        undo.addActionListener(e -> undo());
+        gameMenu.add(undo);
+
+        var redo = new JMenuItem("Redo");
+        redo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        redo.addActionListener(e -> redo());
+        gameMenu.add(redo);
+        gameMenu.addSeparator();
+
+        var group = new ButtonGroup();
+        for(Difficulty preset : Difficulty.values()) {
+            var item = new JRadioButtonMenuItem(preset == Difficulty.CUSTOM
+                    ? preset.getTitle() + "..."
+                    : preset.getTitle() + " (" + preset.getWidth() + "x" + preset.getHeight()
+                        + ", " + preset.getMineNumber() + " mines)");
+            item.setSelected(preset == difficulty);
+            item.addActionListener(e -> {
+                if(preset == Difficulty.CUSTOM)
+                    showCustomDialog();
+                else
+                    newGame(preset.getWidth(), preset.getHeight(), preset.getMineNumber());
+                difficultyItems.get(difficulty).setSelected(true);
+            });
+            difficultyItems.put(preset, item);
+            group.add(item);
+            gameMenu.add(item);
+        }
+
+        var endless = new JMenuItem("Endless...");
+        endless.addActionListener(e -> EndlessFrame.open(this));
+        gameMenu.add(endless);
+
+        gameMenu.addSeparator();
+        var modeGroup = new ButtonGroup();
+        for(GenerationMode mode : GenerationMode.values()) {
+            var item = new JRadioButtonMenuItem(mode.getTitle());
+            item.setSelected(mode == generationMode);
+            item.addActionListener(e -> {
+                try {
+                    board.setGenerationMode(mode);
+                    generationMode = mode;
+                    restartGame();
+                } catch (IllegalArgumentException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "", JOptionPane.ERROR_MESSAGE);
+                    generationModeItems.get(generationMode).setSelected(true);
+                }
+            });
+            generationModeItems.put(mode, item);
+            modeGroup.add(item);
+            gameMenu.add(item);
+        }
+
+        gameMenu.addSeparator();
+        var topologyGroup = new ButtonGroup();
+        for(Topology value : Topology.values()) {
+            var item = new JRadioButtonMenuItem(value.getTitle());
+            item.setSelected(value == topology);
+            item.addActionListener(e -> {
+                Topology previous = topology;
+                topology = value;
+                if(!newGame(board.getWidth(), board.getHeight(), board.getMineNumber()))
+                    topology = previous;
+                topologyItems.get(topology).setSelected(true);
+            });
+            topologyItems.put(value, item);
+            topologyGroup.add(item);
+            gameMenu.add(item);
+        }
+
+        gameMenu.addSeparator();
+        var statistics = new JMenuItem("Statistics...");
+        statistics.addActionListener(e -> showStatistics());
+        gameMenu.add(statistics);
+
+        var exit = new JMenuItem("Exit");
+        exit.addActionListener(e -> System.exit(0));
+        gameMenu.add(exit);
+
+        menuBar.add(gameMenu);
+        this.setJMenuBar(menuBar);
     }
 
-    private void addWindowEventListeners() {
-        addWindowListener(new WindowAdapter() {
+    private void showCustomDialog() {
+        var width = new JSpinner(new SpinnerNumberModel(board.getWidth(), 1, Difficulty.MAX_LENGTH, 1));
+        var height = new JSpinner(new SpinnerNumberModel(board.getHeight(), 1, Difficulty.MAX_LENGTH, 1));
+        var mines = new JSpinner(new SpinnerNumberModel(board.getMineNumber(), 0, Integer.MAX_VALUE, 1));
+
+        var panel = new JPanel(new GridLayout(3, 2, 5, 5));
+        panel.add(new JLabel("Width:"));
+        panel.add(width);
+        panel.add(new JLabel("Height:"));
+        panel.add(height);
+        panel.add(new JLabel("Mines:"));
+        panel.add(mines);
+
+        int result = JOptionPane.showConfirmDialog(
+                this, panel, "Custom board", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if(result != JOptionPane.OK_OPTION)
+            return;
+
+        int w = (Integer) width.getValue();
+        int h = (Integer) height.getValue();
+        int m = (Integer) mines.getValue();
+        if((long) w * h < m) {
+            JOptionPane.showMessageDialog(
+                    this,
+                    m + " mines cant fit in a " + w + "x" + h + " grid",
+                    "",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        newGame(w, h, m);
+    }
+
+    private void initBoard() {
+        board.reset();
+        moveLog = new MoveLog(board);
+
+        var scrollPane = new JScrollPane(boardPanel);
+        scrollPane.setBorder(null);
+        scrollPane.getViewport().setBackground(resourceManager.closedCell);
+        this.add(scrollPane);
+
+        boardPanel.addMouseListener(new MouseAdapter() {
             @Override
-            public void windowOpened(WindowEvent e) {
-                updateButtonIcons();
+            public void mousePressed(MouseEvent e) {
+                boardPressed(e);
             }
 
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                boardPanel.setPressedCell(-1);
+            }
+        });
+
+        bindKey(KeyEvent.VK_UP, 0, "up", () -> moveCursor(-1, 0));
+        bindKey(KeyEvent.VK_DOWN, 0, "down", () -> moveCursor(1, 0));
+        bindKey(KeyEvent.VK_LEFT, 0, "left", () -> moveCursor(0, -1));
+        bindKey(KeyEvent.VK_RIGHT, 0, "right", () -> moveCursor(0, 1));
+        bindKey(KeyEvent.VK_UP, InputEvent.SHIFT_DOWN_MASK, "jumpUp", () -> moveCursor(-CURSOR_JUMP, 0));
+        bindKey(KeyEvent.VK_DOWN, InputEvent.SHIFT_DOWN_MASK, "jumpDown", () -> moveCursor(CURSOR_JUMP, 0));
+        bindKey(KeyEvent.VK_LEFT, InputEvent.SHIFT_DOWN_MASK, "jumpLeft", () -> moveCursor(0, -CURSOR_JUMP));
+        bindKey(KeyEvent.VK_RIGHT, InputEvent.SHIFT_DOWN_MASK, "jumpRight", () -> moveCursor(0, CURSOR_JUMP));
+        bindKey(KeyEvent.VK_SPACE, 0, "reveal", this::revealAtCursor);
+        bindKey(KeyEvent.VK_ENTER, 0, "reveal", this::revealAtCursor);
+        bindKey(KeyEvent.VK_F, 0, "flag", () -> {
+            if(cursor != -1)
+                queueMove(MoveType.FLAG, cursor, EventQueue.getMostRecentEventTime());
         });
-        addComponentListener(new ComponentAdapter() {
+    }
+
+    private void bindKey(int keyCode, int modifiers, String name, Runnable action) {
+        boardPanel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(keyCode, modifiers), name);
+        boardPanel.getActionMap().put(name, new AbstractAction() {
             @Override
-            public void componentResized(ComponentEvent e) {
-                if(shouldUpdateIcons()) {
-                    updateButtonFonts();
-                    updateButtonIcons();
-                }
+            public void actionPerformed(ActionEvent e) {
+                action.run();
             }
         });
     }
 
-    private boolean shouldUpdateIcons() {
-        Dimension currentSize = this.getSize();
-        int widthChange = Math.abs(currentSize.width - lastSize.width);
-        int heightChange = Math.abs(currentSize.height - lastSize.height);
-        int sizeChange = Math.min(widthChange, heightChange);
+    /**
+     * Turns a press on the board into a move. Only the highlight is
+     * shown right away, the move itself is queued.
+     */
+    private void boardPressed(MouseEvent e) {
+        int cell = boardPanel.cellAt(e.getX(), e.getY());
+        if(cell == -1) return;
+
+        if(board.isOpened(cell)) {
+            boardPanel.setPressedCell(cell);
+            int both = MouseEvent.BUTTON1_DOWN_MASK | MouseEvent.BUTTON3_DOWN_MASK;
+            if(SwingUtilities.isMiddleMouseButton(e) || (e.getModifiersEx() & both) == both)
+                queueMove(MoveType.CHORD, cell, e.getWhen());
+        } else if(SwingUtilities.isLeftMouseButton(e)) {
+            queueMove(MoveType.REVEAL, cell, e.getWhen());
+        } else if(SwingUtilities.isRightMouseButton(e)) {
+            queueMove(MoveType.FLAG, cell, e.getWhen());
+        }
+    }
 
-        if (sizeChange > MINIMUM_SIZE_CHANGE) {
-            lastSize = currentSize;
-            return true;
+    /**
+     * Moves the keyboard cursor, showing it in the middle of the board
+     * the first time. The cursor is drawn with the next drain, so a held
+     * key scrolls the board once per batch and not once per repeat.
+     */
+    private void moveCursor(int dy, int dx) {
+        if(cursor == -1) {
+            cursor = board.index(board.getHeight() / 2, board.getWidth() / 2);
+        } else {
+            int y = Math.clamp(board.getCellY(cursor) + dy, 0, board.getHeight() - 1);
+            int x = Math.clamp(board.getCellX(cursor) + dx, 0, board.getWidth() - 1);
+            cursor = board.index(y, x);
         }
-        return false;
+        scheduleDrain();
     }
 
-    private void updateButtonFonts() {
-        resourceManager.updateCellFontToFit(buttons[0][0]);
-        for (MButton[] buttonList : buttons)
-            for (MButton button : buttonList)
-                button.setFont(resourceManager.getCellFont());
+    /**
+     * Opens the cell under the cursor, or chords on it if it is an
+     * opened number.
+     */
+    private void revealAtCursor() {
+        if(cursor == -1) return;
+        MoveType type = board.isOpened(cursor) ? MoveType.CHORD : MoveType.REVEAL;
+        queueMove(type, cursor, EventQueue.getMostRecentEventTime());
     }
 
-    private void updateButtonIcons() {
-        mineIcon = ResourceManager.getResizedIcon(resourceManager.getMineImage(), buttons[0][0], false);
-        flagIcon = ResourceManager.getResizedIcon(resourceManager.getFlagImage(), buttons[0][0], false);
-        for (MButton[] buttonList : buttons)
-            for (MButton button : buttonList)
-                if(button.isFlagged())
-                    button.setIcon(flagIcon);
+    /**
+     * @param when The time of the input event, in epoch milliseconds.
+     */
+    private void queueMove(MoveType type, int cell, long when) {
+        if(pendingCount == pendingMoves.length) {
+            pendingMoves = Arrays.copyOf(pendingMoves, pendingCount * 2);
+            pendingTimes = Arrays.copyOf(pendingTimes, pendingCount * 2);
+        }
+        pendingMoves[pendingCount] = cell << 2 | type.ordinal();
+        pendingTimes[pendingCount++] = when;
+        scheduleDrain();
     }
 
-    private void initFrame() {
-        this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        var dimension = new Dimension(492, 610);
-        this.setMinimumSize(dimension);
-        this.setSize(dimension);
-        this.setLayout(new BorderLayout());
-        this.setLocationRelativeTo(null);
-        this.setTitle("Minesweeper");
-        this.setIconImage(resourceManager.getIconImage());
+    private void scheduleDrain() {
+        if(!drainPending) {
+            drainPending = true;
+            SwingUtilities.invokeLater(this::drainMoves);
+        }
     }
 
-    private void initButtons() {
-        buttonsPanel.setLayout(new GridLayout(GRID_LENGTH, GRID_LENGTH));
+    /**
+     * Plays every move queued since the last drain, in order, each as an
+     * undo step of its own. The mine counter, the cursor and the check
+     * for a win are updated once for the whole batch, and the opened
+     * cells are repainted together by the board panel. Moves left after
+     * one that wins or loses the game are dropped.
+     */
+    private void drainMoves() {
+        boolean lost = false;
+        for(int k = 0; k < pendingCount && !lost && !board.isWon(); ++k) {
+            long start = Metrics.ENABLED ? System.nanoTime() : 0;
+            boardPanel.setHintCell(-1);
+            beginStep();
+            lost = !play(MoveType.values()[pendingMoves[k] & 3], pendingMoves[k] >>> 2);
+            if(Metrics.ENABLED)
+                Metrics.recordInput(start, pendingTimes[k]);
+        }
 
-        for(int y = 0; y < buttons.length; ++y) {
-            for(int x = 0; x < buttons[y].length; ++x) {
-                MButton button;
+        boardPanel.setCursorCell(cursor);
+        if(!lost) {
+            updateMineCounter();
+            checkFinish();
+        }
+        pendingCount = 0;
+        drainPending = false;
+    }
 
-                button = new MButton();
-                button.setBackground(resourceManager.closedCell);
-                button.setCelleY(y);
-                button.setCellX(x);
-                button.setBorder(BorderFactory.createRaisedBevelBorder());
-                button.setFont(resourceManager.getCellFont());
-                button.setFocusPainted(false);
-                addListenersToButton(button);
+    /**
+     * Plays one move. Cells a move of the same batch has opened already
+     * are skipped.
+     *
+     * @return <code>false</code> if the move lost the game.
+     */
+    private boolean play(MoveType type, int cell) {
+        int y = board.getCellY(cell);
+        int x = board.getCellX(cell);
+        switch (type) {
+            case REVEAL -> {
+                if(board.isOpened(cell) || board.isFlagged(y, x)) return true;
+
+                recordMove(MoveType.REVEAL, cell);
+                if(board.isMine(cell)) {
+                    board.revealCell(y, x);
+                    stopGame();
+                    return false;
+                }
 
-                buttonsPanel.add(button);
-                buttons[y][x] = button;
+                int count = board.revealClearSection(y, x);
+                if(solver != null)
+                    solver.update(count);
+                boardPanel.repaintRevealed(count);
+            }
+            case FLAG -> toggleFlagged(y, x);
+            case CHORD -> {
+                return chord(y, x);
             }
         }
+        return true;
+    }
 
-        generateMines();
-        generateNumbers();
+    /**
+     * Replaces the board with a new one of the given size and the current
+     * topology and starts over.
+     *
+     * @return <code>false</code> if the board is too big for the topology
+     *         or too dense for the generation mode, which leaves the
+     *         current game as it is.
+     */
+    private boolean newGame(int width, int height, int mineNumber) {
+        Board next;
+        try {
+            next = new Board(width, height, mineNumber, topology);
+            next.setGenerationMode(generationMode);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        board = next;
+        difficulty = Difficulty.of(width, height, mineNumber);
+        cursor = -1;
+        boardPanel.setBoard(board);
+        resizeToFit();
+        restartGame();
+        return true;
+    }
 
-        this.add(buttonsPanel);
+    private JFileChooser getFileChooser() {
+        if(fileChooser == null) {
+            fileChooser = new JFileChooser();
+            fileChooser.setFileFilter(new FileNameExtensionFilter("Saved games", GameFile.EXTENSION));
+        }
+        return fileChooser;
     }
 
-    private void generateNumbers() {
-        for(int y = 0; y < buttons.length; ++y)
-            for(int x = 0; x < buttons[y].length; ++x)
-                if(!buttons[y][x].isMine()) {
-                    int surroundingBombs = getSurroundingMinesCount(y, x);
-                    buttons[y][x].setNumber(surroundingBombs);
-                    buttons[y][x].setForeground(resourceManager.numberColors[surroundingBombs]);
-                }
+    private void saveGame() {
+        if(getFileChooser().showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+
+        var path = fileChooser.getSelectedFile().toPath();
+        if(!path.getFileName().toString().endsWith("." + GameFile.EXTENSION))
+            path = path.resolveSibling(path.getFileName() + "." + GameFile.EXTENSION);
+
+        try {
+            GameFile.save(path, board, timeKeeper.getElapsedMillis());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Couldn't save the game\n" + e.getMessage(), "", JOptionPane.ERROR_MESSAGE);
+        }
     }
 
-    private void addListenersToButton(MButton b) {
-        b.addMouseListener(new MouseAdapter() {
+    /**
+     * Replaces the board with a saved one and resumes its clock.
+     */
+    private void loadGame() {
+        if(getFileChooser().showOpenDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
 
-            @Override
-            public void mouseClicked(MouseEvent e) {
-                MButton b = (MButton)e.getSource();
-                if(b.isOpened()) return;
-
-                if(SwingUtilities.isLeftMouseButton(e)) {
-                    if(b.isFlagged()) return;
-
-                    if(b.isMine()) {
-                        stopGame();
-                    } else {
-                        revealClearSection(b.getCellY(), b.getCellX());
-                    }
-
-                    checkFinish();
-                } else if(SwingUtilities.isRightMouseButton(e)
-                            && lastEvt != e) {
-                    toggleFlagged(b);
-                }
-            }
+        GameFile.SavedGame saved;
+        try {
+            saved = GameFile.load(fileChooser.getSelectedFile().toPath());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Couldn't load the game\n" + e.getMessage(), "", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
-            @Override
-            public void mousePressed(MouseEvent e) {
-                lastEvt = e;
-                MButton b = (MButton)e.getSource();
-                if(!b.isOpened()) {
-                    mouseClicked(e);
-                    return;
-                }
-                b.setFocused(true);
+        board = saved.board();
+        difficulty = Difficulty.of(board.getWidth(), board.getHeight(), board.getMineNumber());
+        generationMode = board.getGenerationMode();
+        topology = board.getTopology();
+        difficultyItems.get(difficulty).setSelected(true);
+        generationModeItems.get(generationMode).setSelected(true);
+        topologyItems.get(topology).setSelected(true);
+
+        solver = null;
+        moveLog = new MoveLog(board);
+        resetHistory();
+        cursor = -1;
+        boardPanel.setBoard(board);
+        boardPanel.setToolTipText(null);
+        resizeToFit();
+        updateMineCounter();
+        timeKeeper.stop();
+        timeKeeper.resetTimer(saved.elapsedMillis());
+    }
+
+    private void resizeToFit() {
+        Rectangle screen = getGraphicsConfiguration().getBounds();
+        Insets insets = getInsets();
+        int width = board.getWidth() * PREFERRED_CELL_SIZE + insets.left + insets.right;
+        int height = board.getHeight() * PREFERRED_CELL_SIZE + insets.top + insets.bottom
+                + titlePanel.getPreferredSize().height + getJMenuBar().getPreferredSize().height;
+
+        Dimension minimum = getMinimumSize();
+        setSize(Math.max(minimum.width, Math.min(width, screen.width * 9 / 10)),
+                Math.max(minimum.height, Math.min(height, screen.height * 9 / 10)));
+        setLocationRelativeTo(null);
+    }
+
+    private Solver getSolver() {
+        if(solver == null) {
+            solver = new Solver(board);
+            solver.setMoveListener(this::recordMove);
+            solver.rescan();
+        }
+        return solver;
+    }
 
-                setCellColor(b, resourceManager.openedCell);
+    /**
+     * Outlines the cell least likely to hold a mine, with the chance in
+     * its tooltip.
+     */
+    private void showHint() {
+        assisted = true;
+        ProbabilityEngine engine = getSolver().getProbabilityEngine();
+        engine.analyze();
+        int cell = engine.getSafestCell();
+        boardPanel.setHintCell(cell);
+        boardPanel.setToolTipText(cell == -1 ? null
+                : String.format("%.1f%% chance of a mine", engine.getMineProbability(cell) * 100));
+    }
+
+    /**
+     * Plays every move that can be deduced, or guesses the safest cell
+     * when nothing can.
+     */
+    private void autoPlay() {
+        assisted = true;
+        boardPanel.setHintCell(-1);
+        beginStep();
+        Solver solver = getSolver();
+        if(!solver.solve()) {
+            int cell = solver.guess();
+            if(cell != -1 && board.isMine(cell)) {
+                stopGame();
+                return;
             }
+        }
 
-            @Override
-            public void mouseReleased(MouseEvent e) {
-                MButton b = (MButton)e.getSource();
-                if(!b.isOpened()) return;
-                if(!b.isFocused()) return;
-                b.setFocused(false);
-                setCellColor(b, resourceManager.closedCell);
+        boardPanel.repaint();
+        updateMineCounter();
+        checkFinish();
+    }
+
+    /**
+     * Opens the unflagged neighbours of a number whose mines are all
+     * flagged, losing the game if a flag was wrong.
+     *
+     * @return <code>false</code> if the game was lost.
+     */
+    private boolean chord(int y, int x) {
+        int count = board.chord(y, x);
+        if(count == 0) return true;
+
+        int cell = board.index(y, x);
+        recordMove(MoveType.CHORD, cell);
+        for(int k = 0, n = board.neighbours(cell, neighbourBuffer); k < n; ++k)
+            if(board.isMine(neighbourBuffer[k]) && board.isOpened(neighbourBuffer[k])) {
+                stopGame();
+                return false;
             }
-        });
+
+        if(solver != null)
+            solver.update(count);
+        boardPanel.repaintRevealed(count);
+        return true;
     }
 
-    private void setCellColor(MButton b, Color c) {
-        int y = b.getCellY();
-        int x = b.getCellX();
+    /**
+     * Turns undo on or off. Games played in practice mode are left out
+     * of the statistics.
+     */
+    private void setPractice(boolean practice) {
+        history = practice ? new UndoHistory() : null;
+        board.setHistory(history);
+        practiced |= practice;
+    }
+
+    /**
+     * Starts a new game's history, in practice mode only, and counts the
+     * game as unassisted again.
+     */
+    private void resetHistory() {
+        setPractice(history != null);
+        practiced = history != null;
+        assisted = false;
+    }
 
-        for(int d = 0; d < 8; ++d) {
-            int ny = y + dy[d];
-            int nx = x + dx[d];
+    /**
+     * Starts an undo step for the move about to be played.
+     */
+    private void beginStep() {
+        if(history != null)
+            history.begin(moveLog.size(), timeKeeper.getElapsedMillis());
+    }
 
-            if(isInvalidCell(ny, nx)
-                || buttons[ny][nx].isOpened()
-                || buttons[ny][nx].isFlagged())
-                continue;
+    /**
+     * Takes back the last move, with its time and its entries in the
+     * move log.
+     */
+    private void undo() {
+        int step = history == null ? -1 : history.undo(board);
+        if(step == -1) return;
 
-            buttons[ny][nx].setBackground(c);
-        }
+        moveLog.setSize(history.getMoveCount(step));
+        timeKeeper.resetTimer(history.getTimeMillis(step));
+        updateAfterHistory();
+    }
+
+    private void redo() {
+        int step = history == null ? -1 : history.redo(board);
+        if(step == -1) return;
+
+        moveLog.setSize(history.getMoveCountAfter(step));
+        timeKeeper.resetTimer(history.getTimeMillis(step));
+        updateAfterHistory();
+        if(history.hasOpenedMine())
+            stopGame();
+        else
+            checkFinish();
+    }
+
+    private void updateAfterHistory() {
+        solver = null;
+        boardPanel.setPressedCell(-1);
+        boardPanel.setHintCell(-1);
+        boardPanel.setToolTipText(null);
+        boardPanel.repaint();
+        updateMineCounter();
+    }
+
+    private void recordMove(MoveType type, int index) {
+        moveLog.append(type, board.getCellY(index), board.getCellX(index), timeKeeper.getElapsedMillis());
+    }
+
+    /**
+     * Plays the moves of the current game back in a separate window, or
+     * those of the last finished game before the first move.
+     */
+    private void showReplay() {
+        MoveLog log = moveLog.size() > 0 ? moveLog : lastGameLog;
+        if(log == null)
+            return;
+
+        new ReplayDialog(this, new Replay(log)).setVisible(true);
+    }
+
+    /**
+     * Stores the outcome of the game that just ended.
+     */
+    private void recordGame(boolean won) {
+        // the statistics are kept per square board, for unassisted games
+        if(practiced || assisted || topology != Topology.SQUARE) return;
+        stats.add(new GameRecord(board.getWidth(), board.getHeight(), board.getMineNumber(),
+                board.getGenerationMode(), won, timeKeeper.getElapsedMillis(), board.get3BV(),
+                moveLog.size(), System.currentTimeMillis()));
+    }
+
+    private void showStatistics() {
+        String key = StatsStore.boardKey(board.getWidth(), board.getHeight(), board.getMineNumber(), generationMode);
+        StatsStore.Summary summary = stats.getSummary(key);
+
+        var text = new StringBuilder("<html>")
+                .append(board.getWidth()).append('x').append(board.getHeight()).append(", ")
+                .append(board.getMineNumber()).append(" mines, ").append(generationMode.getTitle()).append("<br><br>")
+                .append("Games played: ").append(summary.games()).append("<br>")
+                .append("Games won: ").append(summary.wins());
+        if(summary.games() > 0)
+            text.append(String.format(" (%.0f%%)", summary.wins() * 100.0 / summary.games()));
+        text.append("<br>Current streak: ")
+                .append(Math.abs(summary.streak())).append(summary.streak() < 0 ? " losses" : " wins")
+                .append("<br>Longest winning streak: ").append(summary.longestWinStreak())
+                .append("<br>Longest losing streak: ").append(summary.longestLossStreak())
+                .append(String.format("<br>Average 3BV/s: %.2f", summary.averageThreeBVPerSecond()))
+                .append(String.format("<br>Average efficiency: %.0f%%", summary.averageEfficiency() * 100))
+                .append("<br><br>Best times:");
+
+        int rank = 1;
+        for(GameRecord record : stats.getBestTimes(key, 5))
+            text.append(String.format("<br>%d. %.3f s, %.2f 3BV/s, %tF",
+                    rank++, record.timeMillis() / 1000.0, record.threeBVPerSecond(), record.finishedAt()));
+        if(rank == 1)
+            text.append("<br>none yet");
+
+        JOptionPane.showMessageDialog(this, text.append("</html>").toString(), "Statistics", JOptionPane.PLAIN_MESSAGE);
     }
 
     private void stopGame() {
         timeKeeper.stop();
+        if(history != null) {
+            offerUndo();
+            return;
+        }
+
+        recordGame(false);
         revealBoard();
         JOptionPane.showMessageDialog(
                 this,
@@ -218,63 +718,86 @@ public class MainFrame extends JFrame {
         restartGame();
     }
 
-    private void restartGame() {
-
-        for(MButton[] array : buttons)
-            for(MButton button : array)
-                button.reset();
+    /**
+     * Ends a practice game with the mine left open, or takes the move
+     * back.
+     */
+    private void offerUndo() {
+        boardPanel.repaint();
+        String[] options = {"Undo", "New game"};
+        int result = JOptionPane.showOptionDialog(
+                this,
+                "Game Over\n" +
+                "Undo the last move?",
+                "",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.ERROR_MESSAGE,
+                null,
+                options,
+                options[0]);
+
+        if(result == JOptionPane.YES_OPTION)
+            undo();
+        else
+            restartGame();
+    }
 
-        mineCounter = MINE_NUMBER;
-        revealedCells = 0;
+    private void restartGame() {
+        board.reset();
+        resetHistory();
+        if(moveLog.size() > 0)
+            lastGameLog = moveLog;
+        moveLog = new MoveLog(board);
+        solver = null;
+        boardPanel.setPressedCell(-1);
+        boardPanel.setHintCell(-1);
+        boardPanel.setToolTipText(null);
+        boardPanel.repaint();
         updateMineCounter();
-        generateMines();
-        generateNumbers();
         timeKeeper.stop();
         timeKeeper.resetTimer();
     }
 
     private void revealBoard() {
-        boolean isWon = GRID_LENGTH * GRID_LENGTH - MINE_NUMBER == revealedCells;
-        for(MButton[] array : buttons)
-            for(MButton button : array) {
-                if(button.isOpened() || button.isFlagged()) continue;
-                if(isWon && button.isMine()) {
-                    toggleFlagged(button);
+        boolean isWon = board.isWon();
+        for(int y = 0; y < board.getHeight(); ++y)
+            for(int x = 0; x < board.getWidth(); ++x) {
+                if(board.isOpened(y, x) || board.isFlagged(y, x)) continue;
+                if(isWon && board.isMine(y, x)) {
+                    board.toggleFlagged(y, x);
                     continue;
                 }
-                revealCell(button);
+                board.revealCell(y, x);
             }
+        updateMineCounter();
+        boardPanel.repaint();
     }
 
-    private void toggleFlagged(MButton b) {
-        if(b.isOpened()) return;
-        boolean flag = b.isFlagged();
-        if(!flag && mineCounter == 0)
+    private void toggleFlagged(int y, int x) {
+        if(!board.toggleFlagged(y, x))
             return;
 
-        flag = !flag;
-        b.setFlagged(flag);
-        if(flag) {
-            b.setIcon(flagIcon);
-            mineCounter--;
-        } else {
-            b.setIcon(null);
-            mineCounter++;
-        }
-        updateMineCounter();
+        int cell = board.index(y, x);
+        recordMove(MoveType.FLAG, cell);
+        // a number dropped once all its closed neighbours were flagged
+        // has work again when one of them is unflagged
+        if(solver != null)
+            solver.touch(cell);
+        boardPanel.repaintCell(y, x);
     }
 
     private void checkFinish() {
-        if(revealedCells != GRID_LENGTH * GRID_LENGTH - MINE_NUMBER)
+        if(!board.isWon())
             return;
 
         timeKeeper.stop();
+        recordGame(true);
         revealBoard();
 
         int result = JOptionPane.showConfirmDialog(
                 this,
                 "Congrats!\n" +
-                "You won in " + (timeKeeper.getTime() - 1) + " seconds.\n" +
+                "You won in " + String.format("%.3f", timeKeeper.getElapsedMillis() / 1000.0) + " seconds.\n" +
                 "Play again?",
                 "",
                 JOptionPane.YES_NO_OPTION);
@@ -285,70 +808,6 @@ public class MainFrame extends JFrame {
         restartGame();
     }
 
-    private boolean isInvalidCell(int y, int x) {
-        return y < 0 || y > GRID_LENGTH - 1 || x < 0 || x > GRID_LENGTH - 1;
-    }
-
-    /**
-     * Reveals the cells in the grid that are connected to the cell
-     * specified by the <code>x</code> and <code>y</code> coordinates
-     * and that have no mines in their 3x3 neighborhood. This method
-     * uses a recursive fill algorithm to reveal all contiguous
-     * cells with no mines. If the initial cell has a non-zero number
-     * of surrounding mines, only that cell will be revealed.
-     *
-     * @param y The row coordinate of the cell to start revealing.
-     * @param x The column coordinate of the cell to start revealing.
-     */
-    private void revealClearSection(int y, int x) {
-        if(isInvalidCell(y, x) || buttons[y][x].isOpened()) return;
-        if(buttons[y][x].getNumber() != 0) {
-            revealCell(buttons[y][x]);
-            return;
-        }
-
-        revealCell(buttons[y][x]);
-        for(int d = 0; d < 8; ++d) {
-            int ny = y + dy[d];
-            int nx = x + dx[d];
-            revealClearSection(ny, nx);
-        }
-    }
-
-    private void revealCell(MButton b) {
-        if(b.isOpened()) return;
-        if(b.isFlagged()) return;
-
-        if(b.isMine()) {
-            b.setBackground(resourceManager.mineBackground);
-            b.setIcon(mineIcon);
-            b.setOpened(true);
-            return;
-        }
-
-        revealedCells++;
-        b.setBackground(resourceManager.openedCell);
-        b.setText(b.getNumber() != 0 ? b.getNumber() + "" : "");
-        b.setOpened(true);
-    }
-
-    private int getSurroundingMinesCount(int y, int x) {
-        int count = 0;
-
-        for(int d = 0; d < 8; ++d) {
-            int ny = y + dy[d];
-            int nx = x + dx[d];
-
-            // out of bounds check
-            if(isInvalidCell(ny, nx)) continue;
-
-            if(buttons[ny][nx].isMine())
-                count++;
-        }
-
-        return count;
-    }
-
     private void initTitleBar() {
         titlePanel.setLayout(new GridLayout(1, 3));
         titlePanel.setPreferredSize(new Dimension(0, 100));
@@ -366,12 +825,13 @@ public class MainFrame extends JFrame {
         lblMineCounter.setBorder(new LineBorder(Color.BLACK));
         lblMineCounter.setToolTipText("The number of mines left");
 
-        var restartButton = new JButton();
         restartButton.setPreferredSize(new Dimension(100, 100));
         restartButton.setIcon(ResourceManager.getResizedIcon(resourceManager.getRestartGameImage(), restartButton, true));
         restartButton.addActionListener(e -> restartGame());
         restartButton.setToolTipText("Restarts the game");
         restartButton.setFocusPainted(false);
+        // space would press the button instead of opening the cursor's cell
+        restartButton.setFocusable(false);
         restartButton.setBorder(new LineBorder(Color.BLACK));
 
         titlePanel.add(lblMineCounter);
@@ -383,7 +843,7 @@ public class MainFrame extends JFrame {
     }
 
     private void updateMineCounter() {
-        lblMineCounter.setText(formatNumber(mineCounter));
+        lblMineCounter.setText(formatNumber(board.getMineCounter()));
     }
 
     String formatNumber(int number) {
@@ -394,24 +854,4 @@ public class MainFrame extends JFrame {
             text += '0';
         return text + number;
     }
-
-    private void generateMines() {
-        int mines = MINE_NUMBER;
-        Random rand = new Random();
-        Set<Point> controlSet = new HashSet<>();
-
-        while(mines > 0) {
-            int x = rand.nextInt(GRID_LENGTH);
-            int y = rand.nextInt(GRID_LENGTH);
-            Point p = new Point(y, x);
-
-            if(!controlSet.contains(p)) {
-
-                buttons[y][x].setMine(true);
-                buttons[y][x].setNumber(-1);
-                mines--;
-                controlSet.add(p);
-            }
-        }
-    }
 }
@@ -0,0 +1,243 @@
+package com.obada.minesweeper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opt-in timings of the game loop, switched on with
+ * <code>-Dminesweeper.metrics=true</code>. Every measurement goes into a
+ * {@link Histogram} and is emitted as a JFR event, and the percentiles
+ * are published as the <code>com.obada.minesweeper:type=Metrics</code>
+ * MBean. Call sites check {@link #ENABLED} first, which is a constant,
+ * so the measurements cost nothing when switched off.
+ */
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("minesweeper.metrics");
+
+    public enum Metric {
+        GENERATION("Mine generation", "ns"),
+        FLOOD_FILL("Flood fill", "ns"),
+        FLOOD_FILL_SIZE("Flood fill size", "cells"),
+        IMAGE_SCALING("Image scaling", "ns"),
+        INPUT("Input handling", "ns"),
+        REPAINT("Board repaint", "ns");
+
+        private final String title;
+        private final String unit;
+
+        Metric(String title, String unit) {
+            this.title = title;
+            this.unit = unit;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+    }
+
+    /**
+     * The percentiles of one metric, as shown over JMX.
+     */
+    public static class Summary {
+        private final Metric metric;
+        private final Histogram histogram;
+
+        Summary(Metric metric, Histogram histogram) {
+            this.metric = metric;
+            this.histogram = histogram;
+        }
+
+        public String getName() {
+            return metric.getTitle();
+        }
+
+        public String getUnit() {
+            return metric.getUnit();
+        }
+
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        public long getP50() {
+            return histogram.getPercentile(50);
+        }
+
+        public long getP99() {
+            return histogram.getPercentile(99);
+        }
+
+        public long getMax() {
+            return histogram.getMax();
+        }
+    }
+
+    public interface IMetricsMXBean {
+        List<Summary> getMetrics();
+
+        void reset();
+    }
+
+    @Name("com.obada.minesweeper.Generation")
+    @Label("Mine Generation")
+    @Category("Minesweeper")
+    static final class GenerationEvent extends Event {
+        @Label("Elapsed") @Timespan long elapsed;
+        @Label("Width") int width;
+        @Label("Height") int height;
+        @Label("Mines") int mines;
+    }
+
+    @Name("com.obada.minesweeper.FloodFill")
+    @Label("Flood Fill")
+    @Category("Minesweeper")
+    static final class FloodFillEvent extends Event {
+        @Label("Elapsed") @Timespan long elapsed;
+        @Label("Cells") int cells;
+    }
+
+    @Name("com.obada.minesweeper.ImageScaling")
+    @Label("Image Scaling")
+    @Category("Minesweeper")
+    static final class ImageScalingEvent extends Event {
+        @Label("Elapsed") @Timespan long elapsed;
+        @Label("Size") int size;
+    }
+
+    @Name("com.obada.minesweeper.Input")
+    @Label("Input Handling")
+    @Category("Minesweeper")
+    static final class InputEvent extends Event {
+        @Label("Elapsed") @Timespan long elapsed;
+        @Label("Queued") @Timespan(Timespan.MILLISECONDS) long queued;
+    }
+
+    @Name("com.obada.minesweeper.Repaint")
+    @Label("Board Repaint")
+    @Category("Minesweeper")
+    static final class RepaintEvent extends Event {
+        @Label("Elapsed") @Timespan long elapsed;
+        @Label("Cells") int cells;
+    }
+
+    private static final Map<Metric, Histogram> histograms = new EnumMap<>(Metric.class);
+
+    static {
+        for(Metric metric : Metric.values())
+            histograms.put(metric, new Histogram());
+        if(ENABLED)
+            register();
+    }
+
+    private Metrics() { }
+
+    private static void register() {
+        IMetricsMXBean bean = new IMetricsMXBean() {
+            @Override
+            public List<Summary> getMetrics() {
+                List<Summary> summaries = new ArrayList<>();
+                for(Metric metric : Metric.values())
+                    summaries.add(new Summary(metric, histograms.get(metric)));
+                return summaries;
+            }
+
+            @Override
+            public void reset() {
+                for(Histogram histogram : histograms.values())
+                    histogram.reset();
+            }
+        };
+
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(bean, new ObjectName("com.obada.minesweeper:type=Metrics"));
+        } catch (JMException e) {
+            System.err.println("Could not register the metrics MBean: " + e.getMessage());
+        }
+    }
+
+    public static Histogram get(Metric metric) {
+        return histograms.get(metric);
+    }
+
+    static void recordGeneration(long startNanos, int width, int height, int mines) {
+        long elapsed = System.nanoTime() - startNanos;
+        histograms.get(Metric.GENERATION).record(elapsed);
+
+        var event = new GenerationEvent();
+        if(event.shouldCommit()) {
+            event.elapsed = elapsed;
+            event.width = width;
+            event.height = height;
+            event.mines = mines;
+            event.commit();
+        }
+    }
+
+    static void recordFloodFill(long startNanos, int cells) {
+        long elapsed = System.nanoTime() - startNanos;
+        histograms.get(Metric.FLOOD_FILL).record(elapsed);
+        histograms.get(Metric.FLOOD_FILL_SIZE).record(cells);
+
+        var event = new FloodFillEvent();
+        if(event.shouldCommit()) {
+            event.elapsed = elapsed;
+            event.cells = cells;
+            event.commit();
+        }
+    }
+
+    static void recordImageScaling(long startNanos, int size) {
+        long elapsed = System.nanoTime() - startNanos;
+        histograms.get(Metric.IMAGE_SCALING).record(elapsed);
+
+        var event = new ImageScalingEvent();
+        if(event.shouldCommit()) {
+            event.elapsed = elapsed;
+            event.size = size;
+            event.commit();
+        }
+    }
+
+    /**
+     * @param when The time the event was created, in epoch milliseconds.
+     */
+    static void recordInput(long startNanos, long when) {
+        long elapsed = System.nanoTime() - startNanos;
+        histograms.get(Metric.INPUT).record(elapsed);
+
+        var event = new InputEvent();
+        if(event.shouldCommit()) {
+            event.elapsed = elapsed;
+            event.queued = Math.max(0, System.currentTimeMillis() - elapsed / 1_000_000 - when);
+            event.commit();
+        }
+    }
+
+    static void recordRepaint(long startNanos, int cells) {
+        long elapsed = System.nanoTime() - startNanos;
+        histograms.get(Metric.REPAINT).record(elapsed);
+
+        var event = new RepaintEvent();
+        if(event.shouldCommit()) {
+            event.elapsed = elapsed;
+            event.cells = cells;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.obada.minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Append-only record of the moves of one game. Each move takes a few
+ * bytes: the cell position and move type packed into one varint,
+ * followed by the milliseconds since the previous move as another
+ * varint. Together with the board the game started from, the log
+ * reproduces the game exactly, see {@link Replay}.
+ */
+public class MoveLog {
+    private final int width;
+    private final int height;
+    private final int mineNumber;
+    private final GenerationMode generationMode;
+    private final Topology topology;
+    private final long seed;
+    // null when the board was fresh from a reset and its seed is enough
+    private final Board.Snapshot start;
+    private byte[] data = new byte[64];
+    private int length = 0;
+    private int moveCount = 0;
+    // moves taken back by setSize stay in data until the next append
+    private int recordedCount = 0;
+    private long lastTime = 0;
+
+    /**
+     * Starts a log for the current state of <code>board</code>.
+     */
+    public MoveLog(Board board) {
+        width = board.getWidth();
+        height = board.getHeight();
+        mineNumber = board.getMineNumber();
+        generationMode = board.getGenerationMode();
+        topology = board.getTopology();
+        seed = board.getSeed();
+        boolean fresh = board.getRevealedCells() == 0 && board.getMineCounter() == mineNumber;
+        start = fresh ? null : board.snapshot();
+    }
+
+    /**
+     * Records a move.
+     *
+     * @param timeMillis The game time of the move. Times are expected
+     *                   not to go backwards.
+     */
+    public void append(MoveType type, int y, int x, long timeMillis) {
+        long position = (long) y * width + x;
+        writeVarint(position << 2 | type.ordinal());
+        writeVarint(Math.max(0, timeMillis - lastTime));
+        lastTime = Math.max(lastTime, timeMillis);
+        recordedCount = ++moveCount;
+    }
+
+    /**
+     * Takes back the moves after the first <code>moves</code>, or brings
+     * back moves taken back before, for undo and redo. Moves taken back
+     * are lost with the next {@link #append}.
+     *
+     * @param moves Clamped to the moves recorded.
+     */
+    void setSize(int moves) {
+        moves = Math.min(moves, recordedCount);
+        int offset = 0;
+        long time = 0;
+        for(int move = 0; move < moves; ++move) {
+            while(data[offset++] < 0) { }
+            long delta = 0;
+            for(int shift = 0; ; shift += 7) {
+                byte b = data[offset++];
+                delta |= (long) (b & 0x7F) << shift;
+                if(b >= 0) break;
+            }
+            time += delta;
+        }
+        length = offset;
+        moveCount = moves;
+        lastTime = time;
+    }
+
+    private void writeVarint(long value) {
+        if(length + 10 > data.length)
+            data = Arrays.copyOf(data, data.length * 2);
+
+        while((value & ~0x7FL) != 0) {
+            data[length++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Decodes every move into the given arrays, each at least
+     * {@link #size()} long.
+     *
+     * @param positions Receives <code>y * width + x</code> of each move.
+     * @param times     Receives the game time of each move.
+     */
+    void decode(int[] positions, byte[] types, long[] times) {
+        long time = 0;
+        int offset = 0;
+        for(int move = 0; move < moveCount; ++move) {
+            long key = 0;
+            for(int shift = 0; ; shift += 7) {
+                byte b = data[offset++];
+                key |= (long) (b & 0x7F) << shift;
+                if(b >= 0) break;
+            }
+            long delta = 0;
+            for(int shift = 0; ; shift += 7) {
+                byte b = data[offset++];
+                delta |= (long) (b & 0x7F) << shift;
+                if(b >= 0) break;
+            }
+
+            positions[move] = (int) (key >>> 2);
+            types[move] = (byte) (key & 3);
+            times[move] = time += delta;
+        }
+    }
+
+    /**
+     * @return a new board in the state this log started from.
+     */
+    public Board newBoard() {
+        var board = new Board(width, height, mineNumber, topology);
+        board.setGenerationMode(generationMode);
+        if(start == null)
+            board.reset(seed);
+        else
+            board.restore(start);
+        return board;
+    }
+
+    /**
+     * @return the number of moves recorded.
+     */
+    public int size() {
+        return moveCount;
+    }
+
+    /**
+     * @return the size of the encoded moves in bytes.
+     */
+    public int getByteSize() {
+        return length;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+}
@@ -0,0 +1,14 @@
+package com.obada.minesweeper;
+
+/**
+ * The moves a player can make on a {@link Board}, as recorded in a
+ * {@link MoveLog}.
+ */
+public enum MoveType {
+    /** Opens a cell, flooding out from it when it has no mines around. */
+    REVEAL,
+    /** Places or removes a flag. */
+    FLAG,
+    /** Opens the closed neighbours of a number whose mines are all flagged. */
+    CHORD
+}
@@ -0,0 +1,209 @@
+package com.obada.minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Turns a first-click-safe board into one that can be cleared by
+ * deduction alone.
+ * <p>
+ * The {@link Solver} plays the board from the first click. Whenever it
+ * gets stuck, one mine on the frontier (a closed cell next to an opened
+ * one) is moved to a closed cell away from the frontier and the solver
+ * carries on from where it stopped. Opened cells stay safe and flagged
+ * cells stay mines, so every perturbation costs a few neighbour updates
+ * instead of a whole new board. Moving a mine changes the numbers the
+ * earlier deductions were made from, so a board the solver clears is
+ * played once more by a fresh solver from the first click, and only
+ * kept if that one clears it too. After too many perturbations the
+ * mines are drawn again, up to {@link #MAX_DRAWS} times, after which
+ * the last layout is kept as it is: safe around the first click, but
+ * possibly needing a guess. Boards within {@link #maxMines} practically
+ * never get there.
+ */
+class NoGuessGenerator {
+    static final int MAX_DRAWS = 256;
+
+    private final Board board;
+    private final SplittableRandom rand;
+    private final int[] around = new int[8];
+    private int[] frontier = new int[64];
+    // frontier mines already collected by the current perturbation
+    private final long[] collected;
+    // false once a scan found every empty closed cell next to an opened
+    // one, which stays so until the board is closed again
+    private boolean unseenLeft;
+
+    /**
+     * Narrower boards and denser ones can have no layout without a guess
+     * for some first clicks, and the generator would never stop on them.
+     *
+     * @return the most mines a no-guess board of this size holds, or -1
+     *         if it needs at least 3 rows and columns (4 on a torus).
+     */
+    static int maxMines(int width, int height, Topology topology) {
+        int minLength = topology == Topology.TORUS ? 4 : 3;
+        if(width < minLength || height < minLength)
+            return -1;
+        int area = width * height;
+        return Math.max(0, Math.min(area / 4, area - 9));
+    }
+
+    NoGuessGenerator(Board board, SplittableRandom rand) {
+        this.board = board;
+        this.rand = rand;
+        collected = new long[(board.getIndexRange() + 63) >>> 6];
+    }
+
+    /**
+     * Reworks the freshly generated mines of the board around
+     * <code>safeCell</code> and leaves the board closed again, with any
+     * flags the player had placed before the first click restored.
+     *
+     * @return <code>false</code> if no layout within {@link #MAX_DRAWS}
+     *         draws could be solved without guessing.
+     */
+    boolean generate(int safeCell) {
+        int[] userFlags = saveFlags();
+        int maxPerturbations = Math.max(16, board.getMineNumber());
+
+        boolean solved = false;
+        for(int draw = 0; !solved && draw < MAX_DRAWS; ++draw) {
+            if(draw != 0)
+                board.redrawMines(safeCell);
+            var solver = new Solver(board);
+            solved = playFromStart(solver, safeCell);
+            for(int p = 0; !solved && p < maxPerturbations; ++p) {
+                int moved = perturb(solver, safeCell);
+                if(moved == -1) break;
+
+                solver.touch(moved);
+                if(solver.solve())
+                    solved = playFromStart(solver, safeCell);
+            }
+        }
+
+        board.clearState();
+        for(int i : userFlags)
+            board.toggleFlagged(i);
+        return solved;
+    }
+
+    private int[] saveFlags() {
+        int[] flags = new int[board.getMineNumber() - board.getMineCounter()];
+        int count = 0;
+        for(int y = 0; y < board.getHeight() && count < flags.length; ++y)
+            for(int x = 0; x < board.getWidth(); ++x)
+                if(board.isFlagged(y, x))
+                    flags[count++] = board.index(y, x);
+        return flags;
+    }
+
+    /**
+     * Closes the board and plays it from the first click with a solver
+     * that knows nothing yet.
+     *
+     * @return <code>true</code> if the solver cleared the board.
+     */
+    private boolean playFromStart(Solver solver, int safeCell) {
+        board.clearState();
+        unseenLeft = true;
+        solver.clear();
+        solver.reveal(safeCell);
+        return solver.solve();
+    }
+
+    /**
+     * Moves one random frontier mine to a closed cell that no opened
+     * number can see, or once every closed cell is seen by one, to any
+     * closed cell outside the first click's neighbourhood. The frontier
+     * is read from the numbers the stuck solver still works on, so a
+     * perturbation does not scan the board.
+     *
+     * @return the cell the mine was taken from, or -1 if no mine could
+     *         be moved.
+     */
+    private int perturb(Solver solver, int safeCell) {
+        int[] constraints = solver.getConstraints();
+        int count = 0;
+        for(int k = 0; k < solver.getConstraintCount(); ++k) {
+            int size = board.neighbours(constraints[k], around);
+            for(int j = 0; j < size; ++j) {
+                int i = around[j];
+                if(!board.isMine(i) || board.isFlagged(i) || (collected[i >>> 6] & 1L << i) != 0) continue;
+
+                collected[i >>> 6] |= 1L << i;
+                if(count == frontier.length)
+                    frontier = Arrays.copyOf(frontier, count * 2);
+                frontier[count++] = i;
+            }
+        }
+        for(int k = 0; k < count; ++k)
+            collected[frontier[k] >>> 6] &= ~(1L << frontier[k]);
+        if(count == 0) return -1;
+
+        int target = randomTarget(safeCell);
+        if(target == -1) return -1;
+
+        int from = frontier[rand.nextInt(count)];
+        board.moveMine(from, target);
+        return from;
+    }
+
+    /**
+     * Picks a closed cell without a mine outside the neighbourhood of
+     * <code>safeCell</code>, one that no opened number can see if there
+     * is any. A few random probes come first and a full scan from a
+     * random start is the fallback.
+     *
+     * @return the cell, or -1 if there is none.
+     */
+    private int randomTarget(int safeCell) {
+        int area = board.getWidth() * board.getHeight();
+        int seen = -1;
+        for(int k = 0; k < 32; ++k) {
+            int i = target(rand.nextInt(area), safeCell);
+            if(i == -1) continue;
+            if(!unseenLeft || !touchesOpened(i)) return i;
+            if(seen == -1) seen = i;
+        }
+
+        int start = rand.nextInt(area);
+        for(int k = 0; k < area; ++k) {
+            int i = target((start + k) % area, safeCell);
+            if(i == -1) continue;
+            if(!unseenLeft || !touchesOpened(i)) return i;
+            if(seen == -1) seen = i;
+        }
+        unseenLeft = false;
+        return seen;
+    }
+
+    /**
+     * @return the cell at row-major <code>position</code> if it is closed,
+     *         free of mines and outside the neighbourhood of
+     *         <code>safeCell</code>, -1 otherwise.
+     */
+    private int target(int position, int safeCell) {
+        int i = board.index(position / board.getWidth(), position % board.getWidth());
+        if(board.isMine(i) || board.isOpened(i) || board.isFlagged(i)) return -1;
+        return isNear(i, safeCell) ? -1 : i;
+    }
+
+    private boolean isNear(int a, int b) {
+        if(a == b) return true;
+        int count = board.neighbours(b, around);
+        for(int k = 0; k < count; ++k)
+            if(around[k] == a)
+                return true;
+        return false;
+    }
+
+    private boolean touchesOpened(int index) {
+        int count = board.neighbours(index, around);
+        for(int k = 0; k < count; ++k)
+            if(board.isOpened(around[k]))
+                return true;
+        return false;
+    }
+}
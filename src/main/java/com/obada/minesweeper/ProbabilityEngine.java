@@ -0,0 +1,693 @@
+package com.obada.minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the probability of every closed cell holding a mine.
+ * <p>
+ * The closed cells next to opened numbers (the frontier) are split into
+ * independent components: two cells belong to the same component when
+ * some number sees both of them. Every component is solved exactly by
+ * enumerating the mine layouts that satisfy its numbers, counted per
+ * number of mines used. The components are then weighted against each
+ * other and against the closed cells nobody can see, using the number
+ * of ways the mines left over can be spread over those cells.
+ * <p>
+ * Components are enumerated in parallel, and the result of each one is
+ * cached under its cells and numbers, so a move only pays for the
+ * components it changed. Components too large to enumerate, and boards
+ * with too many components to weigh exactly, fall back to local
+ * approximations instead of stalling.
+ */
+public class ProbabilityEngine {
+    private static final int MAX_EXACT_CELLS = 64;
+    private static final long MAX_EXACT_NODES = 50_000;
+    private static final int MAX_EXACT_COMPONENTS = 64;
+    private static final int PARALLEL_THRESHOLD = 12;
+    private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final Board board;
+    private final Solver solver;
+    private final int[] around = new int[8];
+    private Map<ComponentKey, ComponentResult> cache = new HashMap<>();
+
+    private int[] frontierCells = new int[0];
+    private double[] frontierProbabilities = new double[0];
+    private double interiorProbability;
+    private boolean exact;
+
+    public ProbabilityEngine(Board board, Solver solver) {
+        this.board = board;
+        this.solver = solver;
+    }
+
+    /**
+     * Recomputes every probability from the constraints the solver
+     * currently knows about.
+     */
+    public void analyze() {
+        int[] constraints = collectConstraints();
+        frontierCells = collectFrontier(constraints);
+        frontierProbabilities = new double[frontierCells.length];
+        exact = true;
+
+        List<ComponentKey> keys = buildComponents(constraints);
+        List<ComponentResult> results = solveComponents(keys);
+
+        int unseen = board.getWidth() * board.getHeight() - board.getRevealedCells()
+                - (board.getMineNumber() - board.getMineCounter()) - frontierCells.length;
+        int minesLeft = board.getMineCounter();
+
+        if(results.size() <= MAX_EXACT_COMPONENTS && weighExactly(results, unseen, minesLeft))
+            return;
+
+        exact = false;
+        weighByDensity(results, unseen, minesLeft);
+    }
+
+    /**
+     * @return the opened numbers with closed neighbours, in index order.
+     */
+    private int[] collectConstraints() {
+        int[] active = solver.getConstraints();
+        int count = 0;
+        int[] constraints = new int[solver.getConstraintCount()];
+        for(int k = 0; k < constraints.length; ++k)
+            if(countUnknown(active[k]) > 0)
+                constraints[count++] = active[k];
+
+        constraints = Arrays.copyOf(constraints, count);
+        Arrays.sort(constraints);
+        return constraints;
+    }
+
+    private int[] collectFrontier(int[] constraints) {
+        int[] cells = new int[constraints.length * 8];
+        int count = 0;
+        for(int c : constraints) {
+            int n = board.neighbours(c, around);
+            for(int k = 0; k < n; ++k)
+                if(isUnknown(around[k]))
+                    cells[count++] = around[k];
+        }
+
+        cells = Arrays.copyOf(cells, count);
+        Arrays.sort(cells);
+
+        int unique = 0;
+        for(int k = 0; k < count; ++k)
+            if(unique == 0 || cells[unique - 1] != cells[k])
+                cells[unique++] = cells[k];
+        return Arrays.copyOf(cells, unique);
+    }
+
+    /**
+     * Groups the constraints with a union-find over the frontier cells
+     * and describes every group as a {@link ComponentKey}.
+     */
+    private List<ComponentKey> buildComponents(int[] constraints) {
+        int[] parent = new int[frontierCells.length];
+        for(int k = 0; k < parent.length; ++k)
+            parent[k] = k;
+
+        for(int c : constraints) {
+            int first = -1;
+            int n = board.neighbours(c, around);
+            for(int k = 0; k < n; ++k) {
+                if(!isUnknown(around[k])) continue;
+
+                int local = Arrays.binarySearch(frontierCells, around[k]);
+                if(first == -1) first = local;
+                else union(parent, first, local);
+            }
+        }
+
+        Map<Integer, int[]> cellsByRoot = new HashMap<>();
+        Map<Integer, List<Integer>> constraintsByRoot = new HashMap<>();
+        int[] componentSize = new int[parent.length];
+        for(int k = 0; k < parent.length; ++k)
+            componentSize[find(parent, k)]++;
+
+        int[] filled = new int[parent.length];
+        for(int k = 0; k < parent.length; ++k) {
+            int root = find(parent, k);
+            cellsByRoot.computeIfAbsent(root, r -> new int[componentSize[r]])[filled[root]++] = frontierCells[k];
+        }
+        for(int c : constraints) {
+            int n = board.neighbours(c, around);
+            for(int k = 0; k < n; ++k)
+                if(isUnknown(around[k])) {
+                    int root = find(parent, Arrays.binarySearch(frontierCells, around[k]));
+                    constraintsByRoot.computeIfAbsent(root, r -> new ArrayList<>()).add(c);
+                    break;
+                }
+        }
+
+        List<ComponentKey> keys = new ArrayList<>();
+        for(var entry : cellsByRoot.entrySet()) {
+            List<Integer> cons = constraintsByRoot.get(entry.getKey());
+            int[] cells = entry.getValue();
+            int[] data = new int[1 + cells.length + cons.size() * 2];
+            data[0] = cells.length;
+            System.arraycopy(cells, 0, data, 1, cells.length);
+            int pos = 1 + cells.length;
+            for(int c : cons) {
+                data[pos++] = c;
+                data[pos++] = missingMines(c);
+            }
+            keys.add(new ComponentKey(data));
+        }
+        return keys;
+    }
+
+    private static int find(int[] parent, int k) {
+        while(parent[k] != k) {
+            parent[k] = parent[parent[k]];
+            k = parent[k];
+        }
+        return k;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        a = find(parent, a);
+        b = find(parent, b);
+        if(a != b) parent[Math.max(a, b)] = Math.min(a, b);
+    }
+
+    /**
+     * Takes cached results where the component did not change and
+     * enumerates the rest, on the pool when there is enough work.
+     */
+    private List<ComponentResult> solveComponents(List<ComponentKey> keys) {
+        Map<ComponentKey, ComponentResult> nextCache = new HashMap<>();
+        List<ComponentResult> results = new ArrayList<>(keys.size());
+        List<ComponentKey> missing = new ArrayList<>();
+        int work = 0;
+
+        for(ComponentKey key : keys) {
+            ComponentResult result = cache.get(key);
+            if(result != null) {
+                nextCache.put(key, result);
+                results.add(result);
+            } else {
+                missing.add(key);
+                work += key.cellCount();
+            }
+        }
+
+        if(missing.size() > 1 && work >= PARALLEL_THRESHOLD) {
+            List<Callable<ComponentResult>> tasks = new ArrayList<>(missing.size());
+            for(ComponentKey key : missing)
+                tasks.add(() -> new ComponentSolver(board, key).solve());
+            try {
+                for(Future<ComponentResult> future : pool.invokeAll(tasks))
+                    results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        } else {
+            for(ComponentKey key : missing)
+                results.add(new ComponentSolver(board, key).solve());
+        }
+
+        for(ComponentResult result : results) {
+            nextCache.put(result.key, result);
+            if(!result.exact) exact = false;
+        }
+        cache = nextCache;
+        return results;
+    }
+
+    /**
+     * Weighs every component by the number of ways the remaining mines
+     * fit in the unseen cells. Component distributions are combined by
+     * convolution; each component is then weighed against the
+     * convolution of all the others.
+     *
+     * @return <code>false</code> if the constraints are inconsistent.
+     */
+    private boolean weighExactly(List<ComponentResult> results, int unseen, int minesLeft) {
+        int n = results.size();
+        double[][] prefix = new double[n + 1][];
+        double[][] suffix = new double[n + 1][];
+        prefix[0] = new double[] {1};
+        suffix[n] = new double[] {1};
+        for(int c = 0; c < n; ++c)
+            prefix[c + 1] = convolve(prefix[c], results.get(c).weights);
+        for(int c = n - 1; c >= 0; --c)
+            suffix[c] = convolve(results.get(c).weights, suffix[c + 1]);
+
+        double[] total = prefix[n];
+        double[] logBinomials = new double[total.length];
+        double maxLog = Double.NEGATIVE_INFINITY;
+        for(int s = 0; s < total.length; ++s) {
+            logBinomials[s] = logBinomial(unseen, minesLeft - s);
+            if(total[s] > 0)
+                maxLog = Math.max(maxLog, logBinomials[s]);
+        }
+        if(maxLog == Double.NEGATIVE_INFINITY)
+            return false;
+
+        double[] spread = new double[total.length];
+        for(int s = 0; s < total.length; ++s)
+            spread[s] = Math.exp(logBinomials[s] - maxLog);
+
+        double norm = 0, interior = 0;
+        for(int s = 0; s < total.length; ++s) {
+            double weight = total[s] * spread[s];
+            norm += weight;
+            if(unseen > 0)
+                interior += weight * (minesLeft - s) / unseen;
+        }
+        if(norm <= 0)
+            return false;
+        interiorProbability = interior / norm;
+
+        for(int c = 0; c < n; ++c) {
+            ComponentResult result = results.get(c);
+            double[] others = convolve(prefix[c], suffix[c + 1]);
+            double[] kWeight = new double[result.weights.length];
+            for(int k = 0; k < kWeight.length; ++k)
+                for(int s = 0; s < others.length; ++s)
+                    if(k + s < spread.length)
+                        kWeight[k] += others[s] * spread[k + s];
+
+            double componentNorm = 0;
+            for(int k = 0; k < kWeight.length; ++k)
+                componentNorm += result.weights[k] * kWeight[k];
+
+            for(int i = 0; i < result.cells.length; ++i) {
+                double p = 0;
+                for(int k = 0; k < kWeight.length; ++k)
+                    p += result.cellWeights[k][i] * kWeight[k];
+                setProbability(result.cells[i], componentNorm > 0 ? p / componentNorm : 0.5);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Approximates the weighing for boards with many components: with
+     * plenty of unseen cells, one extra mine in a component scales the
+     * number of ways by roughly <code>density / (1 - density)</code>.
+     */
+    private void weighByDensity(List<ComponentResult> results, int unseen, int minesLeft) {
+        int closed = Math.max(1, unseen + frontierCells.length);
+        double density = Math.min(0.999, Math.max(0.001, (double) minesLeft / closed));
+        double logOdds = Math.log(density / (1 - density));
+
+        double expectedFrontierMines = 0;
+        for(ComponentResult result : results) {
+            double[] kWeight = new double[result.weights.length];
+            double maxLog = Double.NEGATIVE_INFINITY;
+            for(int k = 0; k < kWeight.length; ++k)
+                maxLog = Math.max(maxLog, k * logOdds);
+            for(int k = 0; k < kWeight.length; ++k)
+                kWeight[k] = Math.exp(k * logOdds - maxLog);
+
+            double componentNorm = 0, mines = 0;
+            for(int k = 0; k < kWeight.length; ++k) {
+                componentNorm += result.weights[k] * kWeight[k];
+                mines += k * result.weights[k] * kWeight[k];
+            }
+
+            for(int i = 0; i < result.cells.length; ++i) {
+                double p = 0;
+                for(int k = 0; k < kWeight.length; ++k)
+                    p += result.cellWeights[k][i] * kWeight[k];
+                setProbability(result.cells[i], componentNorm > 0 ? p / componentNorm : density);
+            }
+            if(componentNorm > 0)
+                expectedFrontierMines += mines / componentNorm;
+        }
+
+        interiorProbability = unseen > 0
+                ? Math.min(1, Math.max(0, (minesLeft - expectedFrontierMines) / unseen))
+                : 0;
+    }
+
+    private static double[] convolve(double[] a, double[] b) {
+        double[] result = new double[a.length + b.length - 1];
+        for(int i = 0; i < a.length; ++i)
+            if(a[i] != 0)
+                for(int j = 0; j < b.length; ++j)
+                    result[i + j] += a[i] * b[j];
+        return result;
+    }
+
+    private static double logBinomial(int n, int k) {
+        if(k < 0 || k > n) return Double.NEGATIVE_INFINITY;
+        return logFactorial(n) - logFactorial(k) - logFactorial(n - k);
+    }
+
+    private static final double[] smallLogFactorials = new double[256];
+    static {
+        for(int i = 1; i < smallLogFactorials.length; ++i)
+            smallLogFactorials[i] = smallLogFactorials[i - 1] + Math.log(i);
+    }
+
+    private static double logFactorial(int n) {
+        if(n < smallLogFactorials.length)
+            return smallLogFactorials[n];
+
+        // Stirling series, far below double precision issues past 256
+        double x = n;
+        return x * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI * x)
+                + 1 / (12 * x) - 1 / (360 * x * x * x);
+    }
+
+    private void setProbability(int cell, double p) {
+        frontierProbabilities[Arrays.binarySearch(frontierCells, cell)] = p;
+    }
+
+    /**
+     * @return the chance the cell holds a mine, as of the last
+     *         {@link #analyze()}. Opened cells are 0 and flagged cells 1.
+     */
+    public double getMineProbability(int index) {
+        if(board.isOpened(index)) return 0;
+        if(board.isFlagged(index)) return 1;
+
+        int local = Arrays.binarySearch(frontierCells, index);
+        return local >= 0 ? frontierProbabilities[local] : interiorProbability;
+    }
+
+    /**
+     * @return the chance that a closed cell no number can see holds a mine.
+     */
+    public double getInteriorProbability() {
+        return interiorProbability;
+    }
+
+    /**
+     * @return whether the last analysis was exact, rather than
+     *         approximated because of its size.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * @return the closed cell least likely to hold a mine, preferring
+     *         the frontier on ties, or -1 if every cell is opened or flagged.
+     */
+    public int getSafestCell() {
+        int best = -1;
+        double bestProbability = 2;
+        for(int k = 0; k < frontierCells.length; ++k)
+            if(frontierProbabilities[k] < bestProbability) {
+                bestProbability = frontierProbabilities[k];
+                best = frontierCells[k];
+            }
+
+        if(best != -1 && bestProbability <= interiorProbability)
+            return best;
+
+        int interior = findInteriorCell();
+        return interior != -1 ? interior : best;
+    }
+
+    /**
+     * Prefers corners, then edges, where an unseen cell is most likely
+     * to open an area.
+     */
+    private int findInteriorCell() {
+        int w = board.getWidth(), h = board.getHeight();
+        int[][] corners = {{0, 0}, {0, w - 1}, {h - 1, 0}, {h - 1, w - 1}};
+        for(int[] corner : corners)
+            if(isInterior(board.index(corner[0], corner[1])))
+                return board.index(corner[0], corner[1]);
+
+        for(int y = 0; y < h; ++y)
+            for(int x = 0; x < w; ++x)
+                if(isInterior(board.index(y, x)))
+                    return board.index(y, x);
+        return -1;
+    }
+
+    private boolean isInterior(int index) {
+        return isUnknown(index) && Arrays.binarySearch(frontierCells, index) < 0;
+    }
+
+    private boolean isUnknown(int index) {
+        return !board.isOpened(index) && !board.isFlagged(index);
+    }
+
+    private int countUnknown(int index) {
+        int n = board.neighbours(index, around);
+        int count = 0;
+        for(int k = 0; k < n; ++k)
+            if(isUnknown(around[k]))
+                count++;
+        return count;
+    }
+
+    private int missingMines(int index) {
+        int n = board.neighbours(index, around);
+        int flags = 0;
+        for(int k = 0; k < n; ++k)
+            if(board.isFlagged(around[k]))
+                flags++;
+        return board.getNumber(index) - flags;
+    }
+
+    /**
+     * A component as its sorted cells followed by its numbers and their
+     * missing mines. Equal keys always have equal results.
+     */
+    private record ComponentKey(int[] data) {
+        int cellCount() {
+            return data[0];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ComponentKey other && Arrays.equals(data, other.data);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(data);
+        }
+    }
+
+    /**
+     * Layout counts of one component: <code>weights[k]</code> layouts use
+     * <code>k</code> mines, and in <code>cellWeights[k][i]</code> of them
+     * cell <code>i</code> is a mine. Both are scaled by the same factor.
+     */
+    private record ComponentResult(ComponentKey key, int[] cells, double[] weights,
+                                   double[][] cellWeights, boolean exact) {
+    }
+
+    /**
+     * Enumerates the layouts of one component with backtracking, checking
+     * every number as soon as one of its cells is decided.
+     */
+    private static class ComponentSolver {
+        private final Board board;
+        private final ComponentKey key;
+        private int[] cells;
+        private int[] need;
+        private int[] left;
+        private int[] cellConstraintStart;
+        private int[] cellConstraints;
+        private boolean[] mine;
+        private double[] weights;
+        private double[][] cellWeights;
+        private long nodes;
+
+        ComponentSolver(Board board, ComponentKey key) {
+            this.board = board;
+            this.key = key;
+        }
+
+        ComponentResult solve() {
+            int[] data = key.data();
+            int n = data[0];
+            int m = (data.length - 1 - n) / 2;
+            int[] around = new int[8];
+
+            cells = Arrays.copyOfRange(data, 1, 1 + n);
+            need = new int[m];
+            left = new int[m];
+            List<List<Integer>> byCell = new ArrayList<>();
+            for(int i = 0; i < n; ++i)
+                byCell.add(new ArrayList<>());
+
+            for(int c = 0; c < m; ++c) {
+                int index = data[1 + n + 2 * c];
+                need[c] = data[2 + n + 2 * c];
+                int count = board.neighbours(index, around);
+                for(int k = 0; k < count; ++k) {
+                    int local = Arrays.binarySearch(cells, around[k]);
+                    if(local >= 0) {
+                        byCell.get(local).add(c);
+                        left[c]++;
+                    }
+                }
+            }
+
+            int[] order = bfsOrder(byCell, m);
+            cellConstraintStart = new int[n + 1];
+            for(int i = 0; i < n; ++i)
+                cellConstraintStart[i + 1] = cellConstraintStart[i] + byCell.get(order[i]).size();
+            cellConstraints = new int[cellConstraintStart[n]];
+            int[] orderedCells = new int[n];
+            for(int i = 0; i < n; ++i) {
+                orderedCells[i] = cells[order[i]];
+                List<Integer> list = byCell.get(order[i]);
+                for(int k = 0; k < list.size(); ++k)
+                    cellConstraints[cellConstraintStart[i] + k] = list.get(k);
+            }
+            cells = orderedCells;
+
+            boolean consistent = true;
+            for(int c = 0; c < m; ++c)
+                consistent &= need[c] >= 0 && need[c] <= left[c];
+
+            if(consistent && n <= MAX_EXACT_CELLS) {
+                mine = new boolean[n];
+                weights = new double[n + 1];
+                cellWeights = new double[n + 1][n];
+                if(enumerate(0, 0) && hasLayouts()) {
+                    normalize();
+                    return new ComponentResult(key, cells, weights, cellWeights, true);
+                }
+            }
+            return approximate(byCell, order);
+        }
+
+        /**
+         * Orders the cells breadth first over shared numbers, so every
+         * number gets decided early.
+         */
+        private int[] bfsOrder(List<List<Integer>> byCell, int m) {
+            int n = byCell.size();
+            List<List<Integer>> byConstraint = new ArrayList<>();
+            for(int c = 0; c < m; ++c)
+                byConstraint.add(new ArrayList<>());
+            for(int i = 0; i < n; ++i)
+                for(int c : byCell.get(i))
+                    byConstraint.get(c).add(i);
+
+            int[] order = new int[n];
+            boolean[] seen = new boolean[n];
+            int head = 0, tail = 0;
+            for(int start = 0; start < n; ++start) {
+                if(seen[start]) continue;
+                seen[start] = true;
+                order[tail++] = start;
+                while(head < tail) {
+                    int i = order[head++];
+                    for(int c : byCell.get(i))
+                        for(int j : byConstraint.get(c))
+                            if(!seen[j]) {
+                                seen[j] = true;
+                                order[tail++] = j;
+                            }
+                }
+            }
+            return order;
+        }
+
+        /**
+         * @return <code>false</code> if the node budget ran out.
+         */
+        private boolean enumerate(int i, int mines) {
+            if(++nodes > MAX_EXACT_NODES) return false;
+
+            if(i == cells.length) {
+                weights[mines]++;
+                for(int k = 0; k < cells.length; ++k)
+                    if(mine[k]) cellWeights[mines][k]++;
+                return true;
+            }
+
+            for(int value = 0; value <= 1; ++value) {
+                if(assign(i, value)) {
+                    mine[i] = value == 1;
+                    if(!enumerate(i + 1, mines + value)) return false;
+                }
+                unassign(i, value);
+            }
+            mine[i] = false;
+            return true;
+        }
+
+        private boolean assign(int i, int value) {
+            boolean valid = true;
+            for(int k = cellConstraintStart[i]; k < cellConstraintStart[i + 1]; ++k) {
+                int c = cellConstraints[k];
+                need[c] -= value;
+                left[c]--;
+                valid &= need[c] >= 0 && need[c] <= left[c];
+            }
+            return valid;
+        }
+
+        private void unassign(int i, int value) {
+            for(int k = cellConstraintStart[i]; k < cellConstraintStart[i + 1]; ++k) {
+                need[cellConstraints[k]] += value;
+                left[cellConstraints[k]]++;
+            }
+        }
+
+        private boolean hasLayouts() {
+            for(double w : weights)
+                if(w > 0) return true;
+            return false;
+        }
+
+        private void normalize() {
+            double max = 0;
+            for(double w : weights)
+                max = Math.max(max, w);
+            for(int k = 0; k < weights.length; ++k) {
+                weights[k] /= max;
+                for(int i = 0; i < cells.length; ++i)
+                    cellWeights[k][i] /= max;
+            }
+        }
+
+        /**
+         * Gives every cell the highest local density among its numbers
+         * and puts the component's expected mines in a single bucket.
+         */
+        private ComponentResult approximate(List<List<Integer>> byCell, int[] order) {
+            int[] data = key.data();
+            int n = cells.length;
+            int m = need.length;
+            int[] unknownCount = new int[m];
+            for(List<Integer> list : byCell)
+                for(int c : list)
+                    unknownCount[c]++;
+
+            double[] p = new double[n];
+            double sum = 0;
+            for(int i = 0; i < n; ++i) {
+                for(int c : byCell.get(order[i]))
+                    p[i] = Math.max(p[i], Math.min(1, Math.max(0, (double) data[2 + data[0] + 2 * c] / unknownCount[c])));
+                sum += p[i];
+            }
+
+            int k = (int) Math.round(sum);
+            double[] w = new double[k + 1];
+            double[][] cw = new double[k + 1][n];
+            w[k] = 1;
+            cw[k] = p;
+            return new ComponentResult(key, cells, w, cw, false);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.obada.minesweeper;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * The binary protocol between {@link GameServer} and {@link GameClient}.
+ * Every message is a type byte followed by its fields, integers in big
+ * endian or as varints.
+ * <p>
+ * Client to server:
+ * <pre>
+ * JOIN    width:int height:int mines:int mode:byte seed:long
+ * REVEAL  y:int x:int
+ * FLAG    y:int x:int
+ * CHORD   y:int x:int
+ * </pre>
+ * Server to client:
+ * <pre>
+ * JOINED   player:int players:int
+ * STATE    status:byte mineCounter:zigzag count:varint cell:varint*
+ * FINISHED player:int status:byte timeMillis:long
+ * ERROR    message:utf
+ * </pre>
+ * A <code>STATE</code> reply lists only the cells the move changed,
+ * sorted by position <code>y * width + x</code>. Each cell is the gap
+ * to the previous position shifted left by 4, or'ed with its tile, so
+ * a flood fill costs about two bytes per opened cell. The mine counter
+ * is signed, so it is zigzag encoded first, 0, -1, 1, -2 as 0, 1, 2, 3,
+ * and a negative one stays a short varint.
+ */
+public final class Protocol {
+    public static final int DEFAULT_PORT = 7373;
+
+    public static final int JOIN = 0x01;
+    public static final int REVEAL = 0x02;
+    public static final int FLAG = 0x03;
+    public static final int CHORD = 0x04;
+
+    public static final int JOINED = 0x81;
+    public static final int STATE = 0x82;
+    public static final int FINISHED = 0x83;
+    public static final int ERROR = 0x84;
+
+    public static final int PLAYING = 0;
+    public static final int WON = 1;
+    public static final int LOST = 2;
+
+    // tiles 0-8 are the opened numbers
+    public static final int TILE_MINE = 9;
+    public static final int TILE_FLAG = 10;
+    public static final int TILE_CLOSED = 11;
+
+    private Protocol() { }
+
+    /**
+     * @return the offset past the varint written at <code>offset</code>.
+     */
+    static int writeVarint(byte[] buffer, int offset, long value) {
+        while((value & ~0x7FL) != 0) {
+            buffer[offset++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    static long zigzag(int value) {
+        return (value << 1 ^ value >> 31) & 0xFFFFFFFFL;
+    }
+
+    static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
+    static long readVarint(DataInput in) throws IOException {
+        long value = 0;
+        for(int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if(b >= 0) return value;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.obada.minesweeper;
+
+/**
+ * Plays a {@link MoveLog} back on a board of its own. The whole game is
+ * played once up front into an {@link UndoHistory}, one step per move,
+ * so seeking undoes or redoes the cells changed between the current
+ * position and the target and nothing else.
+ * <p>
+ * The history costs four bytes per cell the game opened or flag it
+ * toggled, however big the board is. Mines placed by the first reveal
+ * stay on the board when seeking back before it, closed.
+ */
+public class Replay {
+    private final Board board;
+    private final int width;
+    private final int moveCount;
+    private final int[] positions;
+    private final byte[] types;
+    private final long[] times;
+    private final UndoHistory history = new UndoHistory();
+    private int position = 0;
+
+    public Replay(MoveLog log) {
+        board = log.newBoard();
+        width = log.getWidth();
+        moveCount = log.size();
+        positions = new int[moveCount];
+        types = new byte[moveCount];
+        times = new long[moveCount];
+        log.decode(positions, types, times);
+
+        board.setHistory(history);
+        for(int move = 0; move < moveCount; ++move) {
+            history.begin(move, times[move]);
+            apply(move);
+        }
+        board.setHistory(null);
+        position = moveCount;
+        seek(0);
+    }
+
+    /**
+     * Brings the board to its state after the first <code>move</code>
+     * moves.
+     */
+    public void seek(int move) {
+        move = Math.max(0, Math.min(move, moveCount));
+        // moves that changed nothing have no step, so count the steps of the earlier moves
+        int low = 0, high = history.size();
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(history.getMoveCount(middle) < move) low = middle + 1;
+            else high = middle;
+        }
+        while(history.getCurrent() > low)
+            history.undo(board);
+        while(history.getCurrent() < low)
+            history.redo(board);
+        position = move;
+    }
+
+    /**
+     * Brings the board to its state at the given game time.
+     */
+    public void seekTime(long timeMillis) {
+        int low = 0, high = moveCount;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(times[middle] <= timeMillis) low = middle + 1;
+            else high = middle;
+        }
+        seek(low);
+    }
+
+    /**
+     * Applies the next move.
+     *
+     * @return <code>false</code> if there was none left.
+     */
+    public boolean step() {
+        if(position == moveCount) return false;
+        seek(position + 1);
+        return true;
+    }
+
+    private void apply(int move) {
+        int y = positions[move] / width;
+        int x = positions[move] % width;
+        switch(MoveType.values()[types[move]]) {
+            case REVEAL -> board.revealClearSection(y, x);
+            case FLAG -> board.toggleFlagged(y, x);
+            case CHORD -> board.chord(y, x);
+        }
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return the number of moves applied so far.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public int size() {
+        return moveCount;
+    }
+
+    /**
+     * @return the game time of the last applied move, 0 before the first.
+     */
+    public long getTime() {
+        return position == 0 ? 0 : times[position - 1];
+    }
+
+    /**
+     * @return the game time of the given move, counted from 0.
+     */
+    public long getMoveTime(int move) {
+        return times[move];
+    }
+
+    /**
+     * @return the game time of the last move.
+     */
+    public long getDuration() {
+        return moveCount == 0 ? 0 : times[moveCount - 1];
+    }
+}
@@ -0,0 +1,108 @@
+package com.obada.minesweeper;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Plays a recorded game back at a chosen speed. The slider scrubs
+ * through the moves, and every position is reached through the
+ * undo history of the {@link Replay}, so dragging stays smooth on long
+ * games.
+ */
+class ReplayDialog extends JDialog {
+    private static final int FRAME_MILLIS = 16;
+    private static final String[] SPEED_TITLES = {"0.5x", "1x", "2x", "4x", "16x", "64x"};
+    private static final double[] SPEEDS = {0.5, 1, 2, 4, 16, 64};
+
+    private final Replay replay;
+    private final BoardPanel boardPanel;
+    private final JSlider slider;
+    private final JButton playButton = new JButton("Play");
+    private final JComboBox<String> speedBox = new JComboBox<>(SPEED_TITLES);
+    private final JLabel timeLabel = new JLabel();
+    private final Timer timer = new Timer(FRAME_MILLIS, e -> advance());
+    private double clock;
+    private long lastFrame;
+    private boolean updatingSlider;
+
+    ReplayDialog(Frame owner, Replay replay) {
+        super(owner, "Replay", false);
+        this.replay = replay;
+        boardPanel = new BoardPanel(replay.getBoard());
+        slider = new JSlider(0, replay.size(), 0);
+
+        var scrollPane = new JScrollPane(boardPanel);
+        scrollPane.setBorder(null);
+        add(scrollPane);
+
+        speedBox.setSelectedIndex(1);
+        playButton.addActionListener(e -> togglePlaying());
+        slider.addChangeListener(e -> {
+            if(updatingSlider) return;
+            replay.seek(slider.getValue());
+            clock = replay.getTime();
+            updateView();
+        });
+
+        var controls = new JPanel(new BorderLayout(5, 0));
+        controls.add(playButton, BorderLayout.WEST);
+        controls.add(slider);
+        var right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        right.add(timeLabel);
+        right.add(speedBox);
+        controls.add(right, BorderLayout.EAST);
+        add(controls, BorderLayout.SOUTH);
+
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setSize(owner.getSize());
+        setLocationRelativeTo(owner);
+        updateView();
+    }
+
+    @Override
+    public void dispose() {
+        timer.stop();
+        super.dispose();
+    }
+
+    private void togglePlaying() {
+        if(timer.isRunning()) {
+            timer.stop();
+            playButton.setText("Play");
+            return;
+        }
+
+        if(replay.getPosition() == replay.size()) {
+            replay.seek(0);
+            clock = 0;
+        }
+        lastFrame = System.nanoTime();
+        timer.start();
+        playButton.setText("Pause");
+    }
+
+    /**
+     * Moves the game clock on by the real time since the last frame,
+     * scaled by the speed, and applies every move it passed.
+     */
+    private void advance() {
+        long now = System.nanoTime();
+        clock += (now - lastFrame) / 1e6 * SPEEDS[speedBox.getSelectedIndex()];
+        lastFrame = now;
+
+        while(replay.getPosition() < replay.size() && replay.getMoveTime(replay.getPosition()) <= clock)
+            replay.step();
+
+        if(replay.getPosition() == replay.size())
+            togglePlaying();
+        updateView();
+    }
+
+    private void updateView() {
+        updatingSlider = true;
+        slider.setValue(replay.getPosition());
+        updatingSlider = false;
+        timeLabel.setText(String.format("%.1f / %.1f s", replay.getTime() / 1000.0, replay.getDuration() / 1000.0));
+        boardPanel.repaint();
+    }
+}
@@ -6,28 +6,62 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Fonts, images and colours of the game. The fonts and images are
+ * decoded in parallel on background threads as soon as the instance is
+ * created, which <code>Main</code> does before the frame exists. Until
+ * they are ready the getters hand out placeholders, a logical font and
+ * plain shapes, so the frame can show right away; register with
+ * {@link #whenLoaded(Runnable)} to swap the real ones in.
+ */
 public class ResourceManager {
-    private static ResourceManager instance = null;
+    private static class Holder {
+        static final ResourceManager INSTANCE = new ResourceManager();
+    }
 
-    // I don't care about thread safety because it's just a simple game
-    public static ResourceManager getInstance()
-    {
-        if(instance == null)
-            instance = new ResourceManager();
-        return instance;
+    public static ResourceManager getInstance() {
+        return Holder.INSTANCE;
     }
 
-    private Font titlePanelFont = null;
-    private Font cellFont = null;
-    private BufferedImage iconImage = null;
-    private BufferedImage flagImage = null;
-    private BufferedImage mineImage = null;
-    private BufferedImage restartGameImage = null;
+    private volatile Font titlePanelFont = new Font(Font.MONOSPACED, Font.BOLD, 50);
+    private volatile Font cellFont = new Font(Font.MONOSPACED, Font.BOLD, 20);
+    private volatile Font baseCellFont = cellFont;
+    private volatile BufferedImage iconImage = createPlaceholder(Color.darkGray);
+    private volatile BufferedImage flagImage = createPlaceholder(Color.red);
+    private volatile BufferedImage mineImage = createPlaceholder(Color.black);
+    private volatile BufferedImage restartGameImage = createPlaceholder(Color.yellow);
+    private final CompletableFuture<Void> loaded;
+    private int prewarmedFrom = Integer.MAX_VALUE;
+    private int prewarmedTo = Integer.MIN_VALUE;
+
+    // every prewarmed cell size, and room for a few outside that range
+    private static final int MAX_CACHED_SIZES = BoardPanel.PREWARM_CELL_SIZE - BoardPanel.MIN_CELL_SIZE + 1 + 16;
+    private static final int MAX_CACHED_IMAGES = 4 * MAX_CACHED_SIZES;
+
+    private record ScaledKey(BufferedImage image, int size) { }
+
+    // scaled images and derived fonts, least recently used first, guarded by their own lock
+    private final Map<ScaledKey, BufferedImage> scaledImages = lruMap(MAX_CACHED_IMAGES);
+    private final Map<Integer, Font> cellFonts = lruMap(MAX_CACHED_SIZES);
+    private final ExecutorService prewarmer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "resource-prewarm");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
 
     public final Color mineBackground = Color.red;
     public final Color openedCell = Color.white;
     public final Color closedCell = Color.gray;
+    public final Color hintOutline = new Color(0, 200, 0);
+    public final Color cursorOutline = new Color(255, 170, 0);
     public final Color[] numberColors = new Color[] {
             new Color(0xffffffff),
             new Color(26, 23, 249),
@@ -40,29 +74,84 @@ public class ResourceManager {
             new Color(128, 128, 128),
     };
 
-    private ResourceManager() { loadResources(); }
+    private ResourceManager() {
+        ExecutorService loader = Executors.newFixedThreadPool(
+                Math.min(4, Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread thread = new Thread(r, "resource-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
 
-    private void loadResources() {
-        try {
-            titlePanelFont = loadFont("DS-DIGII.TTF", 50);
-            cellFont = loadFont("PressStart2P-Regular.ttf", 20);
+        var titleFont = CompletableFuture.supplyAsync(() -> loadFont("DS-DIGII.TTF", 50), loader);
+        var font = CompletableFuture.supplyAsync(() -> loadFont("PressStart2P-Regular.ttf", 20), loader);
+        var flag = CompletableFuture.supplyAsync(() -> loadImage("flag.png"), loader);
+        var icon = CompletableFuture.supplyAsync(() -> loadImage("icon.png"), loader);
+        var mine = CompletableFuture.supplyAsync(() -> loadImage("mine.png"), loader);
+        var restart = CompletableFuture.supplyAsync(() -> loadImage("coolFace.png"), loader);
 
-            flagImage = loadImage("flag.png");
-            iconImage = loadImage("icon.png");
-            mineImage = loadImage("mine.png");
-            restartGameImage = loadImage("coolFace.png");
-        } catch (FontFormatException | IOException e) {
-            JOptionPane.showMessageDialog(
-                    null,
-                    "Could not load resources. Error: " + e.getMessage(),
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-            System.exit(1);
-        }
+        loaded = CompletableFuture.allOf(titleFont, font, flag, icon, mine, restart).thenRun(() -> {
+            titlePanelFont = titleFont.join();
+            flagImage = flag.join();
+            iconImage = icon.join();
+            mineImage = mine.join();
+            restartGameImage = restart.join();
+            // under the cache lock, so no placeholder size is cached after the swap
+            synchronized (cellFonts) {
+                baseCellFont = cellFont = font.join();
+                cellFonts.clear();
+            }
+            synchronized (scaledImages) {
+                scaledImages.clear();
+            }
+        });
+        loaded.whenComplete((result, e) -> loader.shutdown());
+        loaded.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            SwingUtilities.invokeLater(() -> {
+                JOptionPane.showMessageDialog(
+                        null,
+                        "Could not load resources. Error: " + cause.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                cause.printStackTrace();
+                System.exit(1);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Runs <code>action</code> on the EDT once the real fonts and images
+     * have replaced the placeholders.
+     */
+    public void whenLoaded(Runnable action) {
+        loaded.thenRun(() -> SwingUtilities.invokeLater(action));
     }
 
-    private Font loadFont(String path, int size) throws IOException, FontFormatException {
+    /**
+     * @return <code>true</code> once the real fonts and images are in.
+     */
+    public boolean isLoaded() {
+        return loaded.isDone() && !loaded.isCompletedExceptionally();
+    }
+
+    /**
+     * Blocks until the real fonts and images are in.
+     */
+    public void awaitLoaded() {
+        loaded.join();
+    }
+
+    private static BufferedImage createPlaceholder(Color color) {
+        var image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillOval(8, 8, 16, 16);
+        g.dispose();
+        return image;
+    }
+
+    private Font loadFont(String path, int size) {
         path = "fonts/" + path;
         try(InputStream fontStream = getClass().getClassLoader().getResourceAsStream(path)) {
             if(fontStream == null)
@@ -70,33 +159,93 @@ public class ResourceManager {
 
             Font font = Font.createFont(Font.TRUETYPE_FONT, fontStream);
             return font.deriveFont(Font.BOLD, size);
+        } catch (FontFormatException | IOException e) {
+            throw new CompletionException(e);
         }
     }
 
-    private BufferedImage loadImage(String path) throws IOException, FontFormatException {
+    private BufferedImage loadImage(String path) {
         path = "images/" + path;
         try(InputStream imageStream = getClass().getClassLoader().getResourceAsStream(path)) {
             if(imageStream == null)
                 throw new IOException("Image not found: " + path);
 
             return ImageIO.read(imageStream);
+        } catch (IOException e) {
+            throw new CompletionException(e);
         }
     }
 
-    public void updateCellFontToFit(JComponent component) {
-        int width = component.getWidth();
-        int height = component.getHeight();
+    private static <K, V> Map<K, V> lruMap(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
 
-        if (width <= 0 || height <= 0)
+    public void updateCellFontToFit(int cellSize) {
+        if (cellSize <= 0)
             return;
 
-        /*
-        px pt
-        27 20
-        54 50
-         */
-        // good enough approximation
-        cellFont = cellFont.deriveFont(Font.BOLD, Math.min(width, height) - 10);
+        cellFont = getCellFont(cellSize);
+    }
+
+    /**
+     * @return the cell font sized for cells of <code>cellSize</code>
+     *         pixels, derived once per size.
+     */
+    public Font getCellFont(int cellSize) {
+        synchronized (cellFonts) {
+            /*
+            px pt
+            27 20
+            54 50
+             */
+            // good enough approximation, small cells keep half their size
+            return cellFonts.computeIfAbsent(cellSize,
+                    size -> baseCellFont.deriveFont(Font.BOLD, Math.max(size / 2, size - 10)));
+        }
+    }
+
+    /**
+     * @return <code>image</code> scaled to a square of <code>size</code>
+     *         pixels, scaled once per size and kept in a bounded cache.
+     */
+    public BufferedImage getScaledImage(BufferedImage image, int size) {
+        var key = new ScaledKey(image, size);
+        synchronized (scaledImages) {
+            BufferedImage scaled = scaledImages.get(key);
+            if(scaled != null)
+                return scaled;
+        }
+
+        BufferedImage scaled = getResizedImage(image, size);
+        synchronized (scaledImages) {
+            scaledImages.put(key, scaled);
+        }
+        return scaled;
+    }
+
+    /**
+     * Scales the cell images and derives the cell fonts for the given
+     * range of cell sizes on a background thread, so resizing the window
+     * finds them ready. Sizes asked for before are not queued again, so
+     * every panel can ask.
+     */
+    public synchronized void prewarm(int fromSize, int toSize) {
+        if(fromSize >= prewarmedFrom && toSize <= prewarmedTo)
+            return;
+        prewarmedFrom = Math.min(prewarmedFrom, fromSize);
+        prewarmedTo = Math.max(prewarmedTo, toSize);
+        loaded.thenRunAsync(() -> {
+            for(int size = fromSize; size <= toSize; ++size) {
+                getScaledImage(mineImage, size);
+                getScaledImage(flagImage, size);
+                getCellFont(size);
+            }
+        }, prewarmer);
     }
 
     public static ImageIcon getResizedIcon(BufferedImage originalImage, JComponent component, boolean preferredSize) {
@@ -109,14 +258,37 @@ public class ResourceManager {
             height = component.getHeight();
         }
 
-        int size = Math.min(height, width);
-        Image resizedImage = originalImage.getScaledInstance(size, size, Image.SCALE_SMOOTH);
-        BufferedImage bufferedResizedImage = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = bufferedResizedImage.createGraphics();
-        g.drawImage(resizedImage, 0, 0, size, size, null);
-        g.dispose();
+        return new ImageIcon(getResizedImage(originalImage, Math.min(height, width)));
+    }
+
+    /**
+     * Scales with bilinear steps that at most halve the image each time,
+     * which looks close to <code>SCALE_SMOOTH</code> at a fraction of its
+     * cost.
+     */
+    public static BufferedImage getResizedImage(BufferedImage originalImage, int size) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        size = Math.max(1, size);
+        BufferedImage current = originalImage;
+        int width = originalImage.getWidth();
+        int height = originalImage.getHeight();
+
+        do {
+            width = width / 2 >= size ? width / 2 : size;
+            height = height / 2 >= size ? height / 2 : size;
+
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = step;
+        } while(width != size || height != size);
 
-        return new ImageIcon(bufferedResizedImage);
+        if(Metrics.ENABLED)
+            Metrics.recordImageScaling(start, size);
+        return current;
     }
 
     public Font getTitlePanelFont() {
@@ -0,0 +1,229 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.OptionalInt;
+import java.util.SplittableRandom;
+
+/**
+ * A file of {@link BoardAnalyzer.Analysis} results for a contiguous
+ * range of seeds of one board, for picking daily challenges. The
+ * records are sorted by 3BV, so the boards of a difficulty band are a
+ * range found by binary search in the memory mapped file.
+ * <pre>
+ *  0  int   magic "MSIX"
+ *  4  int   version
+ *  8  int   width
+ * 12  int   height
+ * 16  int   mine number
+ * 20  int   generation mode
+ * 24  long  first seed
+ * 32  int   record count
+ * 36  int   reserved
+ * 40  records of 12 bytes, by 3BV then seed:
+ *     int seed - first seed, short 3BV, short openings,
+ *     short isolated numbers, short guesses
+ * </pre>
+ * The counts are unsigned and saturate at 65535.
+ */
+public final class SeedIndex {
+    private static final int MAGIC = 0x5849534D; // "MSIX" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    private static final int RECORD_SIZE = 12;
+
+    private final ByteBuffer records;
+    private final int width;
+    private final int height;
+    private final int mineNumber;
+    private final GenerationMode generationMode;
+    private final long firstSeed;
+    private final int count;
+
+    private SeedIndex(ByteBuffer records, int width, int height, int mineNumber,
+                      GenerationMode generationMode, long firstSeed, int count) {
+        this.records = records;
+        this.width = width;
+        this.height = height;
+        this.mineNumber = mineNumber;
+        this.generationMode = generationMode;
+        this.firstSeed = firstSeed;
+        this.count = count;
+    }
+
+    /**
+     * Writes the results of {@link BoardAnalyzer#score} to
+     * <code>path</code>, through a temporary file moved over it.
+     *
+     * @param packed The packed analysis of each seed from
+     *               <code>firstSeed</code> on.
+     */
+    public static void write(Path path, int width, int height, int mineNumber, GenerationMode generationMode,
+                             long firstSeed, long[] packed) throws IOException {
+        // 3BV above the offset, so one sort orders by both
+        long[] order = new long[packed.length];
+        for(int k = 0; k < packed.length; ++k)
+            order[k] = (packed[k] >>> 48) << 32 | k;
+        Arrays.parallelSort(order);
+
+        long size = HEADER_SIZE + (long) packed.length * RECORD_SIZE;
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(mineNumber)
+                    .putInt(generationMode.ordinal())
+                    .putLong(firstSeed)
+                    .putInt(packed.length)
+                    .putInt(0);
+
+            for(long entry : order) {
+                int offset = (int) entry;
+                long counts = packed[offset];
+                buffer.putInt(offset)
+                        .putShort((short) (counts >>> 48))
+                        .putShort((short) (counts >>> 32))
+                        .putShort((short) (counts >>> 16))
+                        .putShort((short) counts);
+            }
+            buffer.force();
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Maps an index written by {@link #write}.
+     *
+     * @throws IOException If the file can't be read, or isn't an index
+     *                     of a version this build understands.
+     */
+    public static SeedIndex open(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size < HEADER_SIZE)
+                throw new IOException(path + " is not a seed index");
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if(buffer.getInt() != MAGIC)
+                throw new IOException(path + " is not a seed index");
+            int version = buffer.getInt();
+            if(version != VERSION)
+                throw new IOException("Unsupported index version " + version);
+
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int mineNumber = buffer.getInt();
+            int mode = buffer.getInt();
+            long firstSeed = buffer.getLong();
+            int count = buffer.getInt();
+            if(mode < 0 || mode >= GenerationMode.values().length || count < 0 || count > Integer.MAX_VALUE / RECORD_SIZE)
+                throw new IOException(path + " has an invalid header");
+            if(size != HEADER_SIZE + (long) count * RECORD_SIZE)
+                throw new IOException(path + " is truncated");
+
+            ByteBuffer records = buffer.slice(HEADER_SIZE, count * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            return new SeedIndex(records, width, height, mineNumber, GenerationMode.values()[mode], firstSeed, count);
+        }
+    }
+
+    /**
+     * Picks the board of a day among those with a 3BV in
+     * <code>[min3BV, max3BV]</code> that need at most
+     * <code>maxGuesses</code> guesses. The same day always gets the same
+     * board, and consecutive days are spread over the whole band.
+     *
+     * @return the record of the board, or nothing if none matches.
+     */
+    public OptionalInt pick(int min3BV, int max3BV, int maxGuesses, long day) {
+        // stored 3BVs saturate, and max3BV + 1 must not overflow
+        max3BV = Math.min(max3BV, 0xFFFF);
+        int from = lowerBound(min3BV);
+        int to = lowerBound(max3BV + 1);
+        if(from >= to)
+            return OptionalInt.empty();
+
+        int band = to - from;
+        int start = new SplittableRandom(day).nextInt(band);
+        for(int k = 0; k < band; ++k) {
+            int record = from + (start + k) % band;
+            if(getAnalysis(record).guesses() <= maxGuesses)
+                return OptionalInt.of(record);
+        }
+        return OptionalInt.empty();
+    }
+
+    /**
+     * @return the first record with a 3BV of at least <code>threeBV</code>.
+     */
+    private int lowerBound(int threeBV) {
+        int low = 0, high = count;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(get3BV(middle) < threeBV)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private int get3BV(int record) {
+        return Short.toUnsignedInt(records.getShort(record * RECORD_SIZE + 4));
+    }
+
+    public long getSeed(int record) {
+        return firstSeed + records.getInt(record * RECORD_SIZE);
+    }
+
+    public BoardAnalyzer.Analysis getAnalysis(int record) {
+        int offset = record * RECORD_SIZE;
+        return new BoardAnalyzer.Analysis(
+                Short.toUnsignedInt(records.getShort(offset + 4)),
+                Short.toUnsignedInt(records.getShort(offset + 6)),
+                Short.toUnsignedInt(records.getShort(offset + 8)),
+                Short.toUnsignedInt(records.getShort(offset + 10)));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getMineNumber() {
+        return mineNumber;
+    }
+
+    public GenerationMode getGenerationMode() {
+        return generationMode;
+    }
+
+    /**
+     * @return the number of seeds in the index.
+     */
+    public int size() {
+        return count;
+    }
+}
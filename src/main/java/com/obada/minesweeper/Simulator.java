@@ -0,0 +1,275 @@
+package com.obada.minesweeper;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays many headless games with an {@link IStrategy} on every core and
+ * reports win rate, clicks and 3BV statistics.
+ * <p>
+ * Each worker owns its board, solver and random stream, split from one
+ * master seed, and takes games from a shared counter in batches, so the
+ * only shared state in the hot loop is that counter.
+ */
+public class Simulator {
+    private static final int BATCH = 256;
+
+    private final int width;
+    private final int height;
+    private final int mineNumber;
+    private final GenerationMode generationMode;
+    private final IStrategy strategy;
+    private final int threads;
+
+    /**
+     * @throws IllegalArgumentException If no board of that size, mine
+     *         number and generation mode can be played.
+     */
+    public Simulator(int width, int height, int mineNumber,
+                     GenerationMode generationMode, IStrategy strategy, int threads) {
+        // fails here rather than in every worker
+        new Board(width, height, mineNumber).setGenerationMode(generationMode);
+        this.width = width;
+        this.height = height;
+        this.mineNumber = mineNumber;
+        this.generationMode = generationMode;
+        this.strategy = strategy;
+        this.threads = threads;
+    }
+
+    /**
+     * The totals of a simulation. <code>threeBV[v - threeBVBase]</code>
+     * counts the boards whose 3BV is <code>v</code>, over only the range
+     * of 3BVs seen so far, which is narrow next to the board area.
+     */
+    public static class Result {
+        long games;
+        long wins;
+        long clicks;
+        long nanos;
+        long[] threeBV = new long[0];
+        int threeBVBase;
+
+        void add3BV(int value, long count) {
+            if(value < threeBVBase || value >= threeBVBase + threeBV.length)
+                cover(value);
+            threeBV[value - threeBVBase] += count;
+        }
+
+        private void cover(int value) {
+            int low = threeBV.length == 0 ? value : Math.min(value, threeBVBase);
+            int high = threeBV.length == 0 ? value : Math.max(value, threeBVBase + threeBV.length - 1);
+            // room on both sides, so the range is grown a few times per worker
+            int margin = Math.max(32, (high - low) / 2);
+            int base = Math.max(0, low - margin);
+            long[] counts = new long[high + margin + 1 - base];
+            if(threeBV.length != 0)
+                System.arraycopy(threeBV, 0, counts, threeBVBase - base, threeBV.length);
+            threeBV = counts;
+            threeBVBase = base;
+        }
+
+        void add(Result other) {
+            games += other.games;
+            wins += other.wins;
+            clicks += other.clicks;
+            for(int k = 0; k < other.threeBV.length; ++k)
+                if(other.threeBV[k] != 0)
+                    add3BV(other.threeBVBase + k, other.threeBV[k]);
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public double getWinRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        public double getAverageClicks() {
+            return games == 0 ? 0 : (double) clicks / games;
+        }
+
+        public double getGamesPerSecond() {
+            return nanos == 0 ? 0 : games * 1e9 / nanos;
+        }
+
+        /**
+         * @return the smallest 3BV at or above the given fraction of boards.
+         */
+        public int get3BVPercentile(double fraction) {
+            long target = (long) Math.ceil(fraction * games);
+            long seen = 0;
+            for(int k = 0; k < threeBV.length; ++k) {
+                seen += threeBV[k];
+                if(seen >= Math.max(1, target))
+                    return threeBVBase + k;
+            }
+            return Math.max(0, threeBVBase + threeBV.length - 1);
+        }
+
+        public double getAverage3BV() {
+            double sum = 0;
+            for(int k = 0; k < threeBV.length; ++k)
+                sum += (double) (threeBVBase + k) * threeBV[k];
+            return games == 0 ? 0 : sum / games;
+        }
+    }
+
+    /**
+     * Plays <code>games</code> games, reproducibly for a given seed when
+     * the strategy itself is deterministic.
+     */
+    public Result run(long games, long seed) throws InterruptedException {
+        SplittableRandom master = new SplittableRandom(seed);
+        AtomicLong next = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for(int t = 0; t < threads; ++t) {
+            SplittableRandom rand = master.split();
+            futures.add(executor.submit(() -> work(games, next, rand)));
+        }
+
+        Result total = new Result();
+        try {
+            for(Future<Result> future : futures)
+                total.add(future.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        total.nanos = System.nanoTime() - start;
+        return total;
+    }
+
+    private Result work(long games, AtomicLong next, SplittableRandom rand) {
+        Board board = new Board(width, height, mineNumber);
+        board.setGenerationMode(generationMode);
+        Solver solver = new Solver(board);
+        Result result = new Result();
+
+        long batch;
+        while((batch = next.getAndAdd(BATCH)) < games) {
+            long end = Math.min(games, batch + BATCH);
+            for(long game = batch; game < end; ++game) {
+                board.reset(rand.nextLong());
+                solver.clear();
+
+                result.clicks += strategy.play(board, solver, rand);
+                if(board.isWon())
+                    result.wins++;
+                if(board.isGenerated())
+                    result.add3BV(board.get3BV(), 1);
+                result.games++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Entry point for <code>--simulate</code>.
+     */
+    public static void main(String[] args) {
+        Difficulty difficulty = Difficulty.EXPERT;
+        int width = -1, height = -1, mines = -1;
+        long games = 100_000;
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        GenerationMode mode = GenerationMode.FIRST_CLICK_SAFE;
+        String strategyName = "solver";
+
+        try {
+            for(int i = 0; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "--simulate" -> { }
+                    case "--help" -> {
+                        printUsage(System.out);
+                        return;
+                    }
+                    case "--games" -> games = Long.parseLong(args[++i]);
+                    case "--preset" -> difficulty = Difficulty.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    case "--width" -> width = Integer.parseInt(args[++i]);
+                    case "--height" -> height = Integer.parseInt(args[++i]);
+                    case "--mines" -> mines = Integer.parseInt(args[++i]);
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--mode" -> mode = GenerationMode.valueOf(args[++i].toUpperCase(Locale.ROOT).replace('-', '_'));
+                    case "--strategy" -> strategyName = args[++i];
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            printUsage(System.err);
+            System.exit(1);
+            return;
+        }
+
+        if(width == -1) width = difficulty.getWidth();
+        if(height == -1) height = difficulty.getHeight();
+        if(mines == -1) mines = difficulty.getMineNumber();
+
+        IStrategy strategy = switch (strategyName) {
+            case "random-safe" -> IStrategy.RANDOM_SAFE;
+            case "solver" -> IStrategy.SOLVER;
+            default -> null;
+        };
+        if(strategy == null || width <= 0 || height <= 0 || threads <= 0 || games <= 0) {
+            printUsage(System.err);
+            System.exit(1);
+            return;
+        }
+
+        Simulator simulator;
+        try {
+            simulator = new Simulator(width, height, mines, mode, strategy, threads);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        System.out.printf(Locale.ROOT, "Simulating %d games of %dx%d with %d mines (%s, %s, seed %d) on %d threads%n",
+                games, width, height, mines, mode.getTitle(), strategyName, seed, threads);
+
+        Result result;
+        try {
+            result = simulator.run(games, seed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        System.out.printf(Locale.ROOT, "Win rate:       %.2f%%%n", result.getWinRate() * 100);
+        System.out.printf(Locale.ROOT, "Average clicks: %.2f%n", result.getAverageClicks());
+        System.out.printf(Locale.ROOT, "3BV:            mean %.2f, min %d, p10 %d, p50 %d, p90 %d, max %d%n",
+                result.getAverage3BV(),
+                result.get3BVPercentile(0), result.get3BVPercentile(0.1), result.get3BVPercentile(0.5),
+                result.get3BVPercentile(0.9), result.get3BVPercentile(1));
+        System.out.printf(Locale.ROOT, "Games/second:   %.0f%n", result.getGamesPerSecond());
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("""
+                Usage: java -jar Minesweeper.jar --simulate [options]
+                  --games N                        games to play (100000)
+                  --preset beginner|intermediate|expert
+                  --width W --height H --mines M   custom board, overrides the preset
+                  --mode classic|first-click-safe|no-guess
+                  --strategy random-safe|solver
+                  --seed S                         master seed, for reproducible runs
+                  --threads T                      worker threads (all cores)
+                  --help                           print this list""");
+    }
+}
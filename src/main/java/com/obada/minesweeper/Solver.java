@@ -0,0 +1,297 @@
+package com.obada.minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Plays a {@link Board} by pure deduction. It only ever opens cells that
+ * are proven safe and flags cells that are proven to be mines, so it
+ * never loses; when it returns without winning the board needs a guess.
+ * <p>
+ * Every opened number that still touches a closed cell is a constraint.
+ * The constraints are kept in a work list and checked with the single
+ * cell rules first, then with the subset rule between pairs of nearby
+ * constraints, and finally against the number of mines left. When
+ * deduction runs out, {@link #guess()} asks the
+ * {@link ProbabilityEngine} for the safest cell.
+ */
+public class Solver {
+    private final Board board;
+    private final byte[] queued;
+    private final int[] unknown = new int[8];
+    private final int[] otherUnknown = new int[8];
+    private final int[] around = new int[8];
+    private final int[] nearby = new int[8];
+    private int[] active = new int[64];
+    private int activeCount = 0;
+    private int clicks = 0;
+    private ProbabilityEngine probabilityEngine;
+    private IMoveListener moveListener;
+
+    public Solver(Board board) {
+        this.board = board;
+        this.queued = new byte[board.getIndexRange()];
+    }
+
+    /**
+     * Reports every reveal and flag the solver makes, or nothing for
+     * <code>null</code>.
+     */
+    public void setMoveListener(IMoveListener moveListener) {
+        this.moveListener = moveListener;
+    }
+
+    /**
+     * Forgets every constraint, for a board that was reset.
+     */
+    public void clear() {
+        Arrays.fill(queued, (byte) 0);
+        activeCount = 0;
+        clicks = 0;
+    }
+
+    /**
+     * Forgets every constraint and queues all opened numbers again.
+     */
+    public void rescan() {
+        clear();
+        for(int y = 0; y < board.getHeight(); ++y)
+            for(int x = 0; x < board.getWidth(); ++x)
+                enqueue(board.index(y, x));
+    }
+
+    /**
+     * Queues the cell and its opened neighbours, for when their
+     * numbers changed behind the solver's back.
+     */
+    public void touch(int index) {
+        enqueue(index);
+        int count = board.neighbours(index, around);
+        for(int k = 0; k < count; ++k)
+            enqueue(around[k]);
+    }
+
+    private void enqueue(int i) {
+        if(queued[i] != 0 || !board.isOpened(i) || board.getNumber(i) <= 0)
+            return;
+
+        if(activeCount == active.length)
+            active = Arrays.copyOf(active, active.length * 2);
+        active[activeCount++] = i;
+        queued[i] = 1;
+    }
+
+    /**
+     * Opens a cell through the board's flood fill and queues every
+     * number it uncovers.
+     */
+    public void reveal(int index) {
+        int count = board.revealClearSection(board.getCellY(index), board.getCellX(index));
+        if(count > 0)
+            clicks++;
+        if(moveListener != null)
+            moveListener.moved(MoveType.REVEAL, index);
+        update(count);
+    }
+
+    private void flag(int index) {
+        if(board.toggleFlagged(index) && moveListener != null)
+            moveListener.moved(MoveType.FLAG, index);
+    }
+
+    /**
+     * @return the reveals that opened at least one cell since the last
+     *         {@link #clear()}.
+     */
+    public int getClicks() {
+        return clicks;
+    }
+
+    /**
+     * Queues the numbers opened by a reveal made outside the solver.
+     *
+     * @param count The number of cells the reveal opened.
+     */
+    public void update(int count) {
+        int[] revealed = board.getRevealBuffer();
+        for(int k = 0; k < count; ++k)
+            enqueue(revealed[k]);
+    }
+
+    /**
+     * Runs the probability engine and opens the cell least likely to
+     * hold a mine.
+     *
+     * @return the opened cell, which may be a mine, or -1 if there is
+     *         no closed cell left.
+     */
+    public int guess() {
+        ProbabilityEngine engine = getProbabilityEngine();
+        engine.analyze();
+        int cell = engine.getSafestCell();
+        if(cell != -1)
+            reveal(cell);
+        return cell;
+    }
+
+    public ProbabilityEngine getProbabilityEngine() {
+        if(probabilityEngine == null)
+            probabilityEngine = new ProbabilityEngine(board, this);
+        return probabilityEngine;
+    }
+
+    /**
+     * Applies deductions until none is left.
+     *
+     * @return <code>true</code> if the board was won.
+     */
+    public boolean solve() {
+        while(!board.isWon()) {
+            if(applySingleRules()) continue;
+            if(applySubsetRules()) continue;
+            if(applyMineCount()) continue;
+            break;
+        }
+        return board.isWon();
+    }
+
+    /**
+     * A number whose flags already account for all its mines makes
+     * every other neighbour safe, and a number with exactly as many
+     * closed neighbours as missing mines makes all of them mines.
+     * Constraints without closed neighbours are dropped from the list.
+     */
+    private boolean applySingleRules() {
+        boolean progress = false;
+        int kept = 0;
+
+        for(int k = 0; k < activeCount; ++k) {
+            int i = active[k];
+            int unknownCount = collectUnknown(i, unknown);
+            if(unknownCount == 0) {
+                queued[i] = 0;
+                continue;
+            }
+
+            int mines = missingMines(i);
+            if(mines == 0 || mines == unknownCount) {
+                for(int u = 0; u < unknownCount; ++u)
+                    if(mines == 0) reveal(unknown[u]);
+                    else flag(unknown[u]);
+                queued[i] = 0;
+                progress = true;
+                continue;
+            }
+
+            active[kept++] = i;
+        }
+
+        activeCount = kept;
+        return progress;
+    }
+
+    /**
+     * When the closed neighbours of one number are all closed neighbours
+     * of another number too, the cells only the second one sees hold
+     * the difference of their missing mines.
+     */
+    private boolean applySubsetRules() {
+        for(int k = 0; k < activeCount; ++k) {
+            int a = active[k];
+            int unknownCount = collectUnknown(a, unknown);
+            if(unknownCount == 0) continue;
+            int mines = missingMines(a);
+
+            // a number that sees all of them sees the first one, so the
+            // candidates are its neighbours whatever the topology
+            for(int c = 0, candidates = board.neighbours(unknown[0], nearby); c < candidates; ++c) {
+                int b = nearby[c];
+                if(b == a || queued[b] == 0) continue;
+
+                int otherCount = collectUnknown(b, otherUnknown);
+                int diffCount = subtract(otherUnknown, otherCount, unknown, unknownCount);
+                if(diffCount <= 0) continue;
+
+                int diffMines = missingMines(b) - mines;
+                if(diffMines != 0 && diffMines != diffCount) continue;
+
+                for(int u = 0; u < diffCount; ++u)
+                    if(diffMines == 0) reveal(otherUnknown[u]);
+                    else flag(otherUnknown[u]);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * With no mines left every closed cell is safe, and with as many
+     * mines left as closed cells every one of them is a mine.
+     */
+    private boolean applyMineCount() {
+        int mines = board.getMineCounter();
+        int closed = board.getWidth() * board.getHeight() - board.getRevealedCells()
+                - (board.getMineNumber() - mines);
+        if(closed == 0 || (mines != 0 && mines != closed))
+            return false;
+
+        for(int y = 0; y < board.getHeight(); ++y)
+            for(int x = 0; x < board.getWidth(); ++x) {
+                int i = board.index(y, x);
+                if(board.isOpened(i) || board.isFlagged(i)) continue;
+                if(mines == 0) reveal(i);
+                else flag(i);
+            }
+        return true;
+    }
+
+    /**
+     * Removes the cells of <code>subset</code> from <code>set</code>,
+     * leaving the rest at the start of <code>set</code>.
+     *
+     * @return the number of cells left, or -1 if <code>subset</code>
+     *         is not contained in <code>set</code>.
+     */
+    private static int subtract(int[] set, int setCount, int[] subset, int subsetCount) {
+        int found = 0;
+        int kept = 0;
+        for(int s = 0; s < setCount; ++s) {
+            boolean shared = false;
+            for(int u = 0; u < subsetCount && !shared; ++u)
+                shared = set[s] == subset[u];
+            if(shared) found++;
+            else set[kept++] = set[s];
+        }
+        return found == subsetCount ? kept : -1;
+    }
+
+    private int collectUnknown(int index, int[] out) {
+        int count = board.neighbours(index, around);
+        int unknownCount = 0;
+        for(int k = 0; k < count; ++k)
+            if(!board.isOpened(around[k]) && !board.isFlagged(around[k]))
+                out[unknownCount++] = around[k];
+        return unknownCount;
+    }
+
+    private int missingMines(int index) {
+        int count = board.neighbours(index, around);
+        int flags = 0;
+        for(int k = 0; k < count; ++k)
+            if(board.isFlagged(around[k]))
+                flags++;
+        return board.getNumber(index) - flags;
+    }
+
+    /**
+     * @return the opened numbers that still touch closed cells. Only
+     *         the first {@link #getConstraintCount()} entries are
+     *         meaningful.
+     */
+    int[] getConstraints() {
+        return active;
+    }
+
+    int getConstraintCount() {
+        return activeCount;
+    }
+}
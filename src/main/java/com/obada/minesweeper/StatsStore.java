@@ -0,0 +1,242 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the outcome of every finished game in an append-only file of
+ * fixed size records, and an index per board in memory: the winning
+ * games ordered by time for the leaderboard, and running totals for
+ * everything else. Adding a game and reading the best times are
+ * <code>O(log n)</code>, and nothing ever rescans the history.
+ * <p>
+ * The file is read and appended to on a background thread, so neither
+ * startup nor the end of a game waits for the disk. Queries see the
+ * games indexed so far.
+ */
+public class StatsStore {
+    private static final int MAGIC = 0x5453534D; // "MSST" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 40;
+    private static final int READ_CHUNK = RECORD_SIZE * 4096;
+
+    /**
+     * Running totals for one board.
+     *
+     * @param streak            Positive for the current run of wins,
+     *                          negative for the current run of losses.
+     * @param averageThreeBVPerSecond Averaged over the won games.
+     * @param averageEfficiency Averaged over the won games.
+     */
+    public record Summary(int games, int wins, int streak, int longestWinStreak, int longestLossStreak,
+                          double averageThreeBVPerSecond, double averageEfficiency) { }
+
+    private static final class BoardStats {
+        private final TreeSet<Entry> bestTimes = new TreeSet<>(Comparator
+                .comparingLong((Entry e) -> e.record().timeMillis())
+                .thenComparingLong(Entry::sequence));
+        private int games;
+        private int wins;
+        private int streak;
+        private int longestWinStreak;
+        private int longestLossStreak;
+        private double totalThreeBVPerSecond;
+        private double totalEfficiency;
+
+        void add(GameRecord record, long sequence) {
+            games++;
+            if(record.won()) {
+                wins++;
+                streak = streak > 0 ? streak + 1 : 1;
+                longestWinStreak = Math.max(longestWinStreak, streak);
+                totalThreeBVPerSecond += record.threeBVPerSecond();
+                totalEfficiency += record.efficiency();
+                bestTimes.add(new Entry(record, sequence));
+            } else {
+                streak = streak < 0 ? streak - 1 : -1;
+                longestLossStreak = Math.max(longestLossStreak, -streak);
+            }
+        }
+
+        Summary summary() {
+            return new Summary(games, wins, streak, longestWinStreak, longestLossStreak,
+                    wins == 0 ? 0 : totalThreeBVPerSecond / wins,
+                    wins == 0 ? 0 : totalEfficiency / wins);
+        }
+    }
+
+    private record Entry(GameRecord record, long sequence) { }
+
+    private final Path file;
+    private final Map<String, BoardStats> index = new HashMap<>();
+    private long sequence = 0;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "stats-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StatsStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return <code>~/.minesweeper/stats.bin</code>.
+     */
+    public static Path defaultPath() {
+        return Path.of(System.getProperty("user.home"), ".minesweeper", "stats.bin");
+    }
+
+    static String boardKey(int width, int height, int mineNumber, GenerationMode generationMode) {
+        return width + "x" + height + "/" + mineNumber + "/" + generationMode.name();
+    }
+
+    /**
+     * Starts reading the history in the background.
+     */
+    public void open() {
+        writer.execute(() -> {
+            try {
+                read();
+            } catch (IOException e) {
+                System.err.println("Could not read the statistics from " + file + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Adds a game to the index and appends it to the file in the
+     * background, after any history still being read.
+     */
+    public void add(GameRecord record) {
+        writer.execute(() -> {
+            index(record);
+            try {
+                append(record);
+            } catch (IOException e) {
+                System.err.println("Could not save the statistics to " + file + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * @return the totals for the given board, see
+     *         {@link GameRecord#boardKey()}.
+     */
+    public synchronized Summary getSummary(String boardKey) {
+        BoardStats stats = index.get(boardKey);
+        return stats == null ? new BoardStats().summary() : stats.summary();
+    }
+
+    /**
+     * @return up to <code>count</code> won games on the given board,
+     *         fastest first.
+     */
+    public synchronized List<GameRecord> getBestTimes(String boardKey, int count) {
+        List<GameRecord> best = new ArrayList<>(count);
+        BoardStats stats = index.get(boardKey);
+        if(stats == null)
+            return best;
+
+        for(Entry entry : stats.bestTimes) {
+            if(best.size() == count) break;
+            best.add(entry.record());
+        }
+        return best;
+    }
+
+    private synchronized void index(GameRecord record) {
+        index.computeIfAbsent(record.boardKey(), key -> new BoardStats()).add(record, sequence++);
+    }
+
+    /**
+     * Reads the file in large chunks. A record cut short by a crash is
+     * ignored, and the next append overwrites it.
+     */
+    private void read() throws IOException {
+        if(!Files.exists(file))
+            return;
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(HEADER_SIZE);
+            while(buffer.hasRemaining())
+                if(channel.read(buffer) < 0) break;
+            buffer.flip();
+            if(buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IOException("not a statistics file");
+
+            buffer.clear();
+            while(channel.read(buffer) > 0 || buffer.position() >= RECORD_SIZE) {
+                buffer.flip();
+                List<GameRecord> chunk = new ArrayList<>(buffer.remaining() / RECORD_SIZE);
+                while(buffer.remaining() >= RECORD_SIZE)
+                    chunk.add(readRecord(buffer));
+                buffer.compact();
+
+                synchronized (this) {
+                    for(GameRecord record : chunk)
+                        index(record);
+                }
+            }
+        }
+    }
+
+    private void append(GameRecord record) throws IOException {
+        Files.createDirectories(file.getParent());
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if(size < HEADER_SIZE) {
+                buffer.putInt(MAGIC).putInt(VERSION);
+                size = 0;
+            } else {
+                size = HEADER_SIZE + (size - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+            }
+            writeRecord(buffer, record);
+            buffer.flip();
+
+            long position = size;
+            while(buffer.hasRemaining())
+                position += channel.write(buffer, position);
+        }
+    }
+
+    private static void writeRecord(ByteBuffer buffer, GameRecord record) {
+        buffer.putInt(record.width())
+                .putInt(record.height())
+                .putInt(record.mineNumber())
+                .put((byte) record.generationMode().ordinal())
+                .put((byte) (record.won() ? 1 : 0))
+                .putShort((short) 0)
+                .putLong(record.timeMillis())
+                .putInt(record.threeBV())
+                .putInt(record.clicks())
+                .putLong(record.finishedAt());
+    }
+
+    private static GameRecord readRecord(ByteBuffer buffer) {
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        int mineNumber = buffer.getInt();
+        GenerationMode mode = GenerationMode.values()[Math.floorMod(buffer.get(), GenerationMode.values().length)];
+        boolean won = buffer.get() != 0;
+        buffer.getShort();
+        return new GameRecord(width, height, mineNumber, mode, won,
+                buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getLong());
+    }
+}
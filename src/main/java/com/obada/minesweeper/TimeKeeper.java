@@ -1,39 +1,76 @@
 package com.obada.minesweeper;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import javax.swing.Timer;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Game clock measured with <code>System.nanoTime</code>. Ticks come from a
+ * Swing {@link Timer}, all of which share the one timer queue thread, so
+ * the callback always runs on the EDT and no thread is created per game.
+ */
 public class TimeKeeper {
-    private Timer timer = new Timer();
-    private int currentTime = 0;
-    private boolean stop = false;
+    // a few ticks a second so the display turns over close to each whole second
+    private static final int TICK_MILLIS = 200;
+
+    private final Timer timer;
     private final ITimeKeeperCallBack callBack;
+    private volatile long startNanos;
+    private volatile long stopNanos;
+    private volatile boolean stop = false;
+    private int lastSeconds = -1;
 
     TimeKeeper(ITimeKeeperCallBack callBack) {
         this.callBack = callBack;
+        timer = new Timer(TICK_MILLIS, e -> tick());
+        timer.setCoalesce(true);
         resetTimer();
     }
 
+    /**
+     * @return the elapsed time in whole seconds.
+     */
     public int getTime() {
-        return currentTime;
+        return (int) (getElapsedMillis() / 1000);
+    }
+
+    /**
+     * @return the elapsed time in milliseconds, frozen once the timer is stopped.
+     */
+    public long getElapsedMillis() {
+        long end = stop ? stopNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
     }
 
     public void stop() {
         if(stop) return;
 
+        stopNanos = System.nanoTime();
         stop = true;
-        timer.cancel();
+        timer.stop();
     }
 
     public void resetTimer() {
-        currentTime = 0;
+        resetTimer(0);
+    }
+
+    /**
+     * Restarts the clock as if <code>elapsedMillis</code> had already
+     * passed, to resume a saved game.
+     */
+    public void resetTimer(long elapsedMillis) {
+        timer.stop();
+        lastSeconds = -1;
+        startNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(elapsedMillis);
         stop = false;
-        (timer = new Timer()).scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                if(!stop)
-                    callBack.run(currentTime++);
-            }
-        }, 0, 1000);
+        timer.setInitialDelay(0);
+        timer.start();
+    }
+
+    private void tick() {
+        if(stop) return;
+
+        int seconds = getTime();
+        if(seconds != lastSeconds)
+            callBack.run(lastSeconds = seconds);
     }
 }
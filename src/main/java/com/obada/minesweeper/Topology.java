@@ -0,0 +1,120 @@
+package com.obada.minesweeper;
+
+/**
+ * Which cells of a {@link Board} are neighbours. Each topology is a list
+ * of row and column offsets, one list for even rows and one for odd
+ * rows, and the torus wraps them around the edges.
+ * <p>
+ * The square grid is the default and uses the board's fixed offsets
+ * into its padded grid. Every other topology is turned into a neighbour
+ * table once per board, see {@link #buildTable(Board)}.
+ */
+public enum Topology {
+    SQUARE("Square", Board.dy, Board.dx, Board.dy, Board.dx, false),
+    /**
+     * Hexagons in offset rows: odd rows are shifted half a cell to the
+     * right, so every cell touches two cells in its own row and two in
+     * each of the rows above and below.
+     */
+    HEX("Hexagonal",
+            new int[] {-1, -1, 0, 0, 1, 1}, new int[] {-1, 0, -1, 1, -1, 0},
+            new int[] {-1, -1, 0, 0, 1, 1}, new int[] {0, 1, -1, 1, 0, 1}, false),
+    /**
+     * The square grid with opposite edges joined.
+     */
+    TORUS("Torus", Board.dy, Board.dx, Board.dy, Board.dx, true),
+    /**
+     * Numbers count the mines a chess knight's move away.
+     */
+    KNIGHT("Knight",
+            new int[] {-2, -2, -1, -1, 1, 1, 2, 2}, new int[] {-1, 1, -2, 2, -2, 2, -1, 1},
+            new int[] {-2, -2, -1, -1, 1, 1, 2, 2}, new int[] {-1, 1, -2, 2, -2, 2, -1, 1}, false);
+
+    /**
+     * The largest board, in cells, of a topology other than
+     * {@link #SQUARE}, whose neighbour table takes up to 36 bytes a cell.
+     */
+    public static final int MAX_TABLE_CELLS = 1 << 22;
+
+    private final String title;
+    private final int[] evenDy;
+    private final int[] evenDx;
+    private final int[] oddDy;
+    private final int[] oddDx;
+    private final boolean wraps;
+
+    Topology(String title, int[] evenDy, int[] evenDx, int[] oddDy, int[] oddDx, boolean wraps) {
+        this.title = title;
+        this.evenDy = evenDy;
+        this.evenDx = evenDx;
+        this.oddDy = oddDy;
+        this.oddDx = oddDx;
+        this.wraps = wraps;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * A neighbour table in compressed sparse row form: the neighbours of
+     * cell <code>i</code> are <code>adjacency[start[i]]</code> up to
+     * <code>adjacency[start[i + 1]]</code>, as indexes into the board's
+     * padded grid. Border cells have none, so walking a table never
+     * needs a bounds check.
+     */
+    record Table(int[] start, int[] adjacency) { }
+
+    /**
+     * @return the neighbour table of <code>board</code>, or
+     *         <code>null</code> for the square grid, which needs none.
+     */
+    Table buildTable(Board board) {
+        if(this == SQUARE)
+            return null;
+
+        int width = board.getWidth(), height = board.getHeight();
+        if((long) width * height > MAX_TABLE_CELLS)
+            throw new IllegalArgumentException(title + " boards are limited to " + MAX_TABLE_CELLS + " cells");
+
+        int[] start = new int[board.getIndexRange() + 1];
+        int[] adjacency = new int[width * height * evenDy.length];
+        int count = 0;
+        int next = 0;
+        for(int y = 0; y < height; ++y)
+            for(int x = 0; x < width; ++x) {
+                int i = board.index(y, x);
+                // cells before this one are border cells without neighbours
+                while(next <= i)
+                    start[next++] = count;
+
+                int[] dys = (y & 1) == 0 ? evenDy : oddDy;
+                int[] dxs = (y & 1) == 0 ? evenDx : oddDx;
+                int first = count;
+                for(int d = 0; d < dys.length; ++d) {
+                    int ny = y + dys[d], nx = x + dxs[d];
+                    if(wraps) {
+                        ny = Math.floorMod(ny, height);
+                        nx = Math.floorMod(nx, width);
+                    } else if(ny < 0 || ny >= height || nx < 0 || nx >= width) {
+                        continue;
+                    }
+
+                    int n = board.index(ny, nx);
+                    // a small torus wraps onto the cell itself or twice onto the same cell
+                    if(n != i && !contains(adjacency, first, count, n))
+                        adjacency[count++] = n;
+                }
+            }
+        while(next < start.length)
+            start[next++] = count;
+        return new Table(start, adjacency);
+    }
+
+    private static boolean contains(int[] values, int from, int to, int value) {
+        for(int k = from; k < to; ++k)
+            if(values[k] == value)
+                return true;
+        return false;
+    }
+}
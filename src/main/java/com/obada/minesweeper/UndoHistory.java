@@ -0,0 +1,140 @@
+package com.obada.minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Unlimited undo and redo for practice games. While attached to a
+ * {@link Board}, every cell the board opens and every flag it toggles is
+ * appended here as one int, <code>index &lt;&lt; 1</code> or'ed with 1 for
+ * a flag. A step is the run of changes between two calls to
+ * {@link #begin(int, long)}, so a step costs four bytes per cell it
+ * changed and undoing a flood fill is as cheap as the fill was.
+ * <p>
+ * Each step also keeps the game time and the length of the
+ * {@link MoveLog} when it began, for the caller to rewind them with it.
+ */
+class UndoHistory {
+    private int[] changes = new int[256];
+    // changes of the applied steps and then of the undone ones
+    private int end = 0;
+    private int[] starts = new int[64];
+    private int[] moves = new int[64];
+    private long[] times = new long[64];
+    private int steps = 0;
+    private int current = 0;
+    private boolean openedMine;
+
+    /**
+     * Starts a step, dropping the steps that were undone since they can
+     * no longer be redone.
+     *
+     * @param moveCount  The size of the move log before the step.
+     * @param timeMillis The game time of the step.
+     */
+    void begin(int moveCount, long timeMillis) {
+        if(current < steps) {
+            end = starts[current];
+            steps = current;
+        }
+        // a step that changed nothing is reused
+        if(steps > 0 && starts[steps - 1] == end)
+            steps--;
+
+        if(steps == starts.length) {
+            starts = Arrays.copyOf(starts, steps * 2);
+            moves = Arrays.copyOf(moves, steps * 2);
+            times = Arrays.copyOf(times, steps * 2);
+        }
+        starts[steps] = end;
+        moves[steps] = moveCount;
+        times[steps] = timeMillis;
+        current = ++steps;
+    }
+
+    /**
+     * Called by the board for every cell it changes.
+     */
+    void record(int change) {
+        if(end == changes.length)
+            changes = Arrays.copyOf(changes, end * 2);
+        changes[end++] = change;
+    }
+
+    /**
+     * Reverts the last applied step on the board, newest change first.
+     *
+     * @return the step undone, or -1 if there is none.
+     */
+    int undo(Board board) {
+        if(current == steps && current > 0 && starts[current - 1] == end)
+            current = --steps;
+        if(current == 0)
+            return -1;
+
+        int step = --current;
+        for(int k = stepEnd(step) - 1; k >= starts[step]; --k)
+            board.revert(changes[k]);
+        return step;
+    }
+
+    /**
+     * Applies the last undone step on the board again.
+     *
+     * @return the step redone, or -1 if there is none.
+     */
+    int redo(Board board) {
+        if(current == steps)
+            return -1;
+
+        int step = current++;
+        openedMine = false;
+        for(int k = starts[step], to = stepEnd(step); k < to; ++k)
+            openedMine |= board.apply(changes[k]);
+        return step;
+    }
+
+    /**
+     * @return whether the last {@link #redo(Board)} opened a mine again.
+     */
+    boolean hasOpenedMine() {
+        return openedMine;
+    }
+
+    /**
+     * @return the number of steps recorded, applied or undone.
+     */
+    int size() {
+        return steps;
+    }
+
+    /**
+     * @return the number of steps applied.
+     */
+    int getCurrent() {
+        return current;
+    }
+
+    private int stepEnd(int step) {
+        return step + 1 < steps ? starts[step + 1] : end;
+    }
+
+    /**
+     * @return the size of the move log before the step.
+     */
+    int getMoveCount(int step) {
+        return moves[step];
+    }
+
+    /**
+     * @return the size of the move log after the step, or
+     *         {@link Integer#MAX_VALUE} for every recorded move after
+     *         the last step.
+     */
+    int getMoveCountAfter(int step) {
+        return step + 1 < steps ? moves[step + 1] : Integer.MAX_VALUE;
+    }
+
+    long getTimeMillis(int step) {
+        return times[step];
+    }
+}
@@ -0,0 +1,144 @@
+package com.obada.minesweeper;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import junit.framework.TestCase;
+
+public class BoardTest extends TestCase {
+    private static boolean bit(long[] row, int k) {
+        return k >= 0 && k < row.length * 64 && (row[k >>> 6] >>> k & 1) != 0;
+    }
+
+    public void testCountWordMatchesNaiveCount() {
+        var rand = new SplittableRandom(19);
+        for(int round = 0; round < 200; ++round) {
+            int words = 1 + rand.nextInt(3);
+            long[] above = new long[words], current = new long[words], below = new long[words];
+            for(int w = 0; w < words; ++w) {
+                // sparse and dense rows both
+                above[w] = round % 2 == 0 ? rand.nextLong() : rand.nextLong() & rand.nextLong() & rand.nextLong();
+                current[w] = rand.nextLong();
+                below[w] = round % 3 == 0 ? -1L : rand.nextLong();
+            }
+
+            byte[] out = new byte[words * 64];
+            for(int w = 0; w < words; ++w)
+                Board.countWord(above, current, below, w, out, w << 6, 64);
+
+            for(int k = 0; k < words * 64; ++k) {
+                int expected = 0;
+                for(int d = -1; d <= 1; ++d) {
+                    if(bit(above, k + d)) expected++;
+                    if(bit(below, k + d)) expected++;
+                    if(d != 0 && bit(current, k + d)) expected++;
+                }
+                assertEquals("cell " + k, expected, out[k] & Board.NUMBER_MASK);
+                assertEquals("cell " + k, bit(current, k), (out[k] & Board.MINE) != 0);
+            }
+        }
+    }
+
+    private static void assertNumbers(Board board) {
+        int mines = 0;
+        int[] around = new int[8];
+        for(int y = 0; y < board.getHeight(); ++y)
+            for(int x = 0; x < board.getWidth(); ++x) {
+                int i = board.index(y, x);
+                if(board.isMine(i)) {
+                    mines++;
+                    continue;
+                }
+                int expected = 0;
+                for(int k = 0, count = board.neighbours(i, around); k < count; ++k)
+                    if(board.isMine(around[k]))
+                        expected++;
+                assertEquals(board.getWidth() + "x" + board.getHeight() + " at " + y + "," + x,
+                        expected, board.getNumber(i));
+            }
+        assertEquals(board.getMineNumber(), mines);
+    }
+
+    public void testPlaceMinesMatchesNaiveCount() {
+        int[] widths = {1, 2, 9, 63, 64, 65, 127, 128, 129, 200};
+        int[] heights = {1, 2, 3, 16, 65};
+        var rand = new SplittableRandom(4);
+        for(int width : widths)
+            for(int height : heights) {
+                int area = width * height;
+                for(int mines : new int[] {0, 1, area / 5, area / 2, area - 1, area}) {
+                    var board = new Board(width, height, Math.max(0, mines));
+                    board.reset(rand.nextLong());
+                    assertNumbers(board);
+                }
+            }
+    }
+
+    public void testMovingMinesKeepsNumbers() {
+        var rand = new SplittableRandom(8);
+        for(Topology topology : Topology.values()) {
+            var board = new Board(65, 17, 250, topology);
+            board.reset(3);
+            for(int move = 0; move < 2000; ++move) {
+                int from = board.index(rand.nextInt(17), rand.nextInt(65));
+                int to = board.index(rand.nextInt(17), rand.nextInt(65));
+                board.moveMine(from, to);
+            }
+            assertNumbers(board);
+        }
+    }
+
+    public void testResetOnGivenCells() {
+        var board = new Board(5, 4, 3);
+        board.reset(new int[] {board.index(0, 0), board.index(0, 1), board.index(3, 4)});
+        assertNumbers(board);
+        assertEquals(2, board.getNumber(1, 0));
+        assertEquals(1, board.getNumber(2, 3));
+        try {
+            board.reset(new int[] {board.index(0, 0), board.index(0, 0), board.index(1, 1)});
+            fail();
+        } catch (IllegalArgumentException e) {
+            // the same cell twice
+        }
+    }
+
+    private static long[] mines(Board board) {
+        long[] bits = new long[(board.getWidth() * board.getHeight() + 63) >>> 6];
+        for(int y = 0; y < board.getHeight(); ++y)
+            for(int x = 0; x < board.getWidth(); ++x)
+                if(board.isMine(y, x)) {
+                    int p = y * board.getWidth() + x;
+                    bits[p >>> 6] |= 1L << p;
+                }
+        return bits;
+    }
+
+    private static Board play(int width, int height, int mineNumber, Topology topology,
+                              GenerationMode mode, long seed) {
+        var board = new Board(width, height, mineNumber, topology);
+        board.setGenerationMode(mode);
+        board.reset(seed);
+        board.revealClearSection(height / 2, width / 2);
+        return board;
+    }
+
+    public void testSameSeedGivesSameMines() {
+        for(Topology topology : Topology.values())
+            for(GenerationMode mode : GenerationMode.values())
+                for(long seed = 0; seed < 20; ++seed) {
+                    String name = topology + " " + mode + " seed " + seed;
+                    var board = play(30, 16, 99, topology, mode, seed);
+                    assertTrue(name, Arrays.equals(mines(board), mines(play(30, 16, 99, topology, mode, seed))));
+                    assertFalse(name, Arrays.equals(mines(board), mines(play(30, 16, 99, topology, mode, seed + 1000))));
+                    if(mode != GenerationMode.CLASSIC)
+                        assertFalse(name, board.isMine(8, 15));
+                }
+
+        // an unseeded reset is reproduced by its seed
+        var board = new Board(200, 100, 4000);
+        board.reset();
+        var again = new Board(200, 100, 4000);
+        again.reset(board.getSeed());
+        assertTrue(Arrays.equals(mines(board), mines(again)));
+    }
+}
@@ -0,0 +1,64 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import junit.framework.TestCase;
+
+public class ChunkStoreTest extends TestCase {
+    private Path directory;
+    private ChunkStore store;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("chunks");
+        store = new ChunkStore(directory, 4);
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        store.close();
+    }
+
+    public void testRoundTripAcrossRegions() throws IOException {
+        var rand = new SplittableRandom(3);
+        // more regions than stay open, on both sides of the origin
+        int[][] chunks = {{0, 0}, {-1, -1}, {31, 32}, {-33, 5}, {100, -200}, {7, 7},
+                {64, 0}, {0, 64}, {-64, 0}, {0, -64}, {1000, 1000}};
+        long[][] written = new long[chunks.length][8];
+        for(int k = 0; k < chunks.length; ++k) {
+            for(int i = 0; i < 8; ++i)
+                written[k][i] = rand.nextLong();
+            store.write(chunks[k][0], chunks[k][1], Arrays.copyOf(written[k], 4), Arrays.copyOfRange(written[k], 4, 8));
+        }
+
+        long[] opened = new long[4], flagged = new long[4];
+        for(int k = chunks.length - 1; k >= 0; --k) {
+            store.read(chunks[k][0], chunks[k][1], opened, flagged);
+            assertTrue(Arrays.equals(Arrays.copyOf(written[k], 4), opened));
+            assertTrue(Arrays.equals(Arrays.copyOfRange(written[k], 4, 8), flagged));
+        }
+    }
+
+    public void testUnwrittenChunksReadAsZeros() throws IOException {
+        long[] opened = {1, 2, 3, 4}, flagged = {5, 6, 7, 8};
+        store.read(5, 5, opened, flagged);
+        assertTrue(Arrays.equals(new long[4], opened));
+        assertTrue(Arrays.equals(new long[4], flagged));
+
+        // a neighbour in the same region file
+        store.write(5, 6, new long[] {-1, -1, -1, -1}, new long[4]);
+        opened[0] = 9;
+        store.read(5, 5, opened, flagged);
+        assertTrue(Arrays.equals(new long[4], opened));
+    }
+
+    public void testCloseDeletesTheStore() throws IOException {
+        store.write(0, 0, new long[4], new long[4]);
+        store.close();
+        assertFalse(Files.exists(directory));
+    }
+}
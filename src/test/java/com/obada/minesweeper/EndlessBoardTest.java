@@ -0,0 +1,124 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import junit.framework.TestCase;
+
+public class EndlessBoardTest extends TestCase {
+    private static final int SIZE = EndlessBoard.CHUNK_SIZE;
+
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("endless");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        // the boards delete it on close, unless a test failed first
+        new ChunkStore(directory, 1).close();
+    }
+
+    private static String layout(EndlessBoard board, int top, int left, int size) {
+        var text = new StringBuilder();
+        for(int y = top; y < top + size; ++y)
+            for(int x = left; x < left + size; ++x)
+                text.append(board.isMine(y, x) ? '*' : (char) ('0' + board.getNumber(y, x)));
+        return text.toString();
+    }
+
+    public void testChunksDependOnlyOnTheSeed() throws IOException {
+        try(var board = new EndlessBoard(42, 0.2, directory);
+            var other = new EndlessBoard(42, 0.2, directory);
+            var reseeded = new EndlessBoard(43, 0.2, directory)) {
+            // reached in a different order, with different neighbours loaded first
+            String far = layout(board, 5 * SIZE - 8, -3 * SIZE - 8, SIZE + 16);
+            layout(other, -SIZE, -SIZE, 2 * SIZE);
+            assertEquals(far, layout(other, 5 * SIZE - 8, -3 * SIZE - 8, SIZE + 16));
+            assertFalse(far.equals(layout(reseeded, 5 * SIZE - 8, -3 * SIZE - 8, SIZE + 16)));
+
+            // numbers are counted across chunk edges
+            for(int y = 5 * SIZE - 2; y <= 5 * SIZE + 1; ++y)
+                for(int x = -3 * SIZE - 2; x <= -3 * SIZE + 1; ++x) {
+                    if(board.isMine(y, x)) continue;
+                    int mines = 0;
+                    for(int d = 0; d < 8; ++d)
+                        if(board.isMine(y + Board.dy[d], x + Board.dx[d]))
+                            mines++;
+                    assertEquals(y + "," + x, mines, board.getNumber(y, x));
+                }
+        }
+    }
+
+    public void testFirstClickIsSafeAcrossChunks() throws IOException {
+        // the origin is the corner of four chunks
+        for(long seed = 0; seed < 200; ++seed)
+            try(var board = new EndlessBoard(seed, EndlessBoard.MAX_DENSITY, directory)) {
+                int count = board.revealClearSection(0, 0);
+                assertFalse("seed " + seed, board.isExploded());
+                assertTrue("seed " + seed, count >= 9);
+                for(int y = -1; y <= 1; ++y)
+                    for(int x = -1; x <= 1; ++x) {
+                        assertFalse("seed " + seed, board.isMine(y, x));
+                        assertTrue("seed " + seed, board.isOpened(y, x));
+                    }
+            }
+    }
+
+    public void testTrimEvictsDownToThreeQuarters() throws IOException {
+        try(var board = new EndlessBoard(7, 0.2, directory, 16)) {
+            for(int cy = 0; cy < 4; ++cy)
+                for(int cx = 0; cx < 4; ++cx)
+                    board.isMine(cy * SIZE, cx * SIZE);
+            board.trim(0, 0);
+            assertEquals(16, board.getLoadedChunks());
+
+            board.isMine(4 * SIZE, 4 * SIZE);
+            board.trim(0, 0);
+            assertEquals(12, board.getLoadedChunks());
+        }
+    }
+
+    public void testEvictedChunksComeBackAsTheyWere() throws IOException {
+        try(var board = new EndlessBoard(11, 0.2, directory, 16)) {
+            board.revealClearSection(0, 0);
+            int flagY = 0, flagX = 0;
+            while(board.isOpened(flagY, flagX))
+                flagX++;
+            assertTrue(board.toggleFlagged(flagY, flagX));
+
+            String[] before = new String[4];
+            for(int k = 0; k < 4; ++k)
+                before[k] = state(board, (k >> 1) - 1, (k & 1) - 1);
+            long revealed = board.getRevealedCells();
+
+            // walk far enough away for the origin chunks to be evicted
+            for(int cx = 10; cx < 30; ++cx)
+                board.isMine(0, cx * SIZE);
+            board.trim(0, 29 * SIZE);
+            assertEquals(12, board.getLoadedChunks());
+            try(var files = Files.list(directory)) {
+                assertTrue(files.findAny().isPresent());
+            }
+
+            for(int k = 0; k < 4; ++k)
+                assertEquals(before[k], state(board, (k >> 1) - 1, (k & 1) - 1));
+            assertTrue(board.isFlagged(flagY, flagX));
+            assertEquals(revealed, board.getRevealedCells());
+        }
+    }
+
+    /**
+     * Opened and flagged cells of one chunk, to compare states.
+     */
+    private static String state(EndlessBoard board, int cy, int cx) {
+        var text = new StringBuilder();
+        for(int y = cy * SIZE; y < (cy + 1) * SIZE; ++y)
+            for(int x = cx * SIZE; x < (cx + 1) * SIZE; ++x)
+                text.append(board.isFlagged(y, x) ? 'F' : board.isOpened(y, x) ? 'O' : '.');
+        return text.toString();
+    }
+}
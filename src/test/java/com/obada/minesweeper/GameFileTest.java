@@ -0,0 +1,100 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class GameFileTest extends TestCase {
+    private Path path;
+
+    @Override
+    protected void setUp() throws IOException {
+        path = Files.createTempFile("game", "." + GameFile.EXTENSION);
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private static void assertSameBoard(Board expected, Board actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getMineNumber(), actual.getMineNumber());
+        assertEquals(expected.getGenerationMode(), actual.getGenerationMode());
+        assertEquals(expected.getTopology(), actual.getTopology());
+        assertEquals(expected.isGenerated(), actual.isGenerated());
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.getMineCounter(), actual.getMineCounter());
+        assertEquals(expected.getRevealedCells(), actual.getRevealedCells());
+        for(int y = 0; y < expected.getHeight(); ++y)
+            for(int x = 0; x < expected.getWidth(); ++x) {
+                String cell = y + "," + x;
+                assertEquals(cell, expected.isMine(y, x), actual.isMine(y, x));
+                assertEquals(cell, expected.isOpened(y, x), actual.isOpened(y, x));
+                assertEquals(cell, expected.isFlagged(y, x), actual.isFlagged(y, x));
+                assertEquals(cell, expected.getNumber(y, x), actual.getNumber(y, x));
+            }
+    }
+
+    public void testRoundTripOnEveryTopology() throws IOException {
+        for(Topology topology : Topology.values()) {
+            var board = new Board(67, 13, 120, topology);
+            board.setGenerationMode(GenerationMode.FIRST_CLICK_SAFE);
+            board.reset(21);
+            board.revealClearSection(6, 30);
+            for(int x = 0; x < 67; x += 3)
+                if(!board.isOpened(0, x))
+                    board.toggleFlagged(0, x);
+
+            GameFile.save(path, board, 123_456);
+            assertEquals(topology.ordinal(), Files.readAllBytes(path)[22]);
+
+            var saved = GameFile.load(path);
+            assertEquals(123_456, saved.elapsedMillis());
+            assertSameBoard(board, saved.board());
+        }
+    }
+
+    public void testUnplacedMinesComeBackTheSame() throws IOException {
+        var board = new Board(30, 16, 99, Topology.HEX);
+        board.setGenerationMode(GenerationMode.NO_GUESS);
+        board.reset(77);
+        board.toggleFlagged(2, 2);
+        GameFile.save(path, board, 0);
+
+        var loaded = GameFile.load(path).board();
+        assertFalse(loaded.isGenerated());
+        assertTrue(loaded.isFlagged(2, 2));
+        board.revealClearSection(8, 15);
+        loaded.revealClearSection(8, 15);
+        assertSameBoard(board, loaded);
+    }
+
+    public void testRejectsBrokenFiles() throws IOException {
+        var board = new Board(9, 9, 10);
+        board.reset(1);
+        GameFile.save(path, board, 0);
+        byte[] bytes = Files.readAllBytes(path);
+
+        bytes[22] = (byte) Topology.values().length;
+        assertLoadFails(bytes);
+        bytes[22] = 0;
+        assertLoadFails(Arrays.copyOf(bytes, bytes.length - 8));
+        bytes[0] = 0;
+        assertLoadFails(bytes);
+    }
+
+    private void assertLoadFails(byte[] bytes) throws IOException {
+        Files.write(path, bytes);
+        try {
+            GameFile.load(path);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
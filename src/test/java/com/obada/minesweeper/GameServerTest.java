@@ -0,0 +1,56 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class GameServerTest extends TestCase {
+    private GameServer server;
+
+    @Override
+    protected void setUp() throws IOException {
+        server = new GameServer(0);
+        server.start();
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        server.close();
+    }
+
+    private GameClient connect() throws IOException {
+        return new GameClient("127.0.0.1", server.getPort());
+    }
+
+    public void testRaceResultsReachTheRoom() throws IOException {
+        try(GameClient winner = connect(); GameClient other = connect(); GameClient elsewhere = connect()) {
+            assertEquals(1, winner.join(9, 9, 10, GenerationMode.CLASSIC, 42));
+            assertEquals(2, other.join(9, 9, 10, GenerationMode.CLASSIC, 42));
+            assertEquals(1, elsewhere.join(9, 9, 10, GenerationMode.CLASSIC, 43));
+
+            var board = new Board(9, 9, 10);
+            board.reset(42);
+            GameClient.Diff diff = null;
+            for(int y = 0; y < 9; ++y)
+                for(int x = 0; x < 9; ++x)
+                    if(!board.isMine(y, x) && !board.isOpened(y, x)) {
+                        board.revealClearSection(y, x);
+                        diff = winner.reveal(y, x);
+                    }
+            assertEquals(Protocol.WON, diff.status());
+
+            // results are written by a task of the receiving connection, ahead of or after a reply
+            long deadline = System.currentTimeMillis() + 5000;
+            while(other.getFinishes().isEmpty() && System.currentTimeMillis() < deadline)
+                other.flag(0, 0);
+            assertEquals(1, other.getFinishes().size());
+            var finish = other.getFinishes().get(0);
+            assertEquals(winner.getPlayer(), finish.player());
+            assertEquals(Protocol.WON, finish.status());
+
+            elsewhere.flag(0, 0);
+            assertTrue(elsewhere.getFinishes().isEmpty());
+            assertTrue(winner.getFinishes().isEmpty());
+        }
+    }
+}
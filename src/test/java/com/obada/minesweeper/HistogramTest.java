@@ -0,0 +1,59 @@
+package com.obada.minesweeper;
+
+import junit.framework.TestCase;
+
+public class HistogramTest extends TestCase {
+    public void testSmallValuesAreExact() {
+        for(int value = 0; value < 64; ++value) {
+            assertEquals(value, Histogram.bucketOf(value));
+            assertEquals(value, Histogram.valueOf(value));
+        }
+    }
+
+    public void testBucketBoundaries() {
+        assertEquals(64, Histogram.bucketOf(64));
+        assertEquals(64, Histogram.bucketOf(65));
+        assertEquals(65, Histogram.bucketOf(66));
+        assertEquals(95, Histogram.bucketOf(127));
+        assertEquals(96, Histogram.bucketOf(128));
+        assertEquals(96, Histogram.bucketOf(131));
+        assertEquals(97, Histogram.bucketOf(132));
+
+        // every power of two starts a bucket right after the last one below it
+        for(int bits = 6; bits < 63; ++bits) {
+            long power = 1L << bits;
+            assertEquals("2^" + bits, Histogram.bucketOf(power - 1) + 1, Histogram.bucketOf(power));
+            assertEquals("2^" + bits, Histogram.bucketOf(power), Histogram.bucketOf(power + (power >>> 5) - 1));
+            assertEquals("2^" + bits, Histogram.bucketOf(power) + 1, Histogram.bucketOf(power + (power >>> 5)));
+        }
+    }
+
+    public void testValuesStayInTheirBucket() {
+        int last = Histogram.bucketOf(Long.MAX_VALUE);
+        for(int bucket = 0; bucket <= last; ++bucket)
+            assertEquals(bucket, Histogram.bucketOf(Histogram.valueOf(bucket)));
+
+        for(long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            long estimate = Histogram.valueOf(Histogram.bucketOf(value));
+            assertTrue(value + " as " + estimate, Math.abs(estimate - value) <= value * 0.03);
+        }
+    }
+
+    public void testPercentiles() {
+        var histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getMax());
+
+        for(int value = 1; value <= 100; ++value)
+            histogram.record(value);
+        histogram.record(-5);
+        assertEquals(101, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0));
+        assertEquals(50, histogram.getPercentile(50));
+        assertEquals(Histogram.valueOf(Histogram.bucketOf(99)), histogram.getPercentile(99));
+        assertEquals(Histogram.valueOf(Histogram.bucketOf(100)), histogram.getMax());
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+}
@@ -0,0 +1,76 @@
+package com.obada.minesweeper;
+
+import junit.framework.TestCase;
+
+public class MoveLogTest extends TestCase {
+    private static MoveLog newLog(int width, int height) {
+        var board = new Board(width, height, 0);
+        board.reset(1);
+        return new MoveLog(board);
+    }
+
+    private static void assertMoves(MoveLog log, int[] positions, MoveType[] types, long[] times) {
+        assertEquals(positions.length, log.size());
+        int[] decodedPositions = new int[log.size()];
+        byte[] decodedTypes = new byte[log.size()];
+        long[] decodedTimes = new long[log.size()];
+        log.decode(decodedPositions, decodedTypes, decodedTimes);
+        for(int move = 0; move < positions.length; ++move) {
+            assertEquals("move " + move, positions[move], decodedPositions[move]);
+            assertEquals("move " + move, types[move].ordinal(), decodedTypes[move]);
+            assertEquals("move " + move, times[move], decodedTimes[move]);
+        }
+    }
+
+    public void testVarintsRoundTrip() {
+        // positions and time deltas on both sides of every varint length
+        var log = newLog(5000, 5000);
+        int[] positions = {0, 31, 32, 4095, 4096, 524287, 524288, 24_999_999};
+        long[] times = {0, 127, 128, 16_511, 16_512, 2_113_663, 2_113_664, 1L << 40};
+        MoveType[] types = new MoveType[positions.length];
+        for(int move = 0; move < positions.length; ++move) {
+            types[move] = MoveType.values()[move % 3];
+            log.append(types[move], positions[move] / 5000, positions[move] % 5000, times[move]);
+        }
+        assertMoves(log, positions, types, times);
+    }
+
+    public void testTimesNeverGoBack() {
+        var log = newLog(9, 9);
+        log.append(MoveType.REVEAL, 0, 0, 500);
+        log.append(MoveType.FLAG, 0, 1, 300);
+        log.append(MoveType.CHORD, 0, 2, 700);
+        assertMoves(log, new int[] {0, 1, 2},
+                new MoveType[] {MoveType.REVEAL, MoveType.FLAG, MoveType.CHORD},
+                new long[] {500, 500, 700});
+    }
+
+    public void testSetSize() {
+        var log = newLog(300, 300);
+        for(int move = 0; move < 10; ++move)
+            log.append(MoveType.REVEAL, move * 30, move, move * 1000L);
+        int bytes = log.getByteSize();
+
+        log.setSize(4);
+        assertEquals(4, log.size());
+        assertMoves(log, new int[] {0, 9001, 18002, 27003},
+                new MoveType[] {MoveType.REVEAL, MoveType.REVEAL, MoveType.REVEAL, MoveType.REVEAL},
+                new long[] {0, 1000, 2000, 3000});
+
+        // taken back moves come back until the next append
+        log.setSize(Integer.MAX_VALUE);
+        assertEquals(10, log.size());
+        assertEquals(bytes, log.getByteSize());
+
+        log.setSize(2);
+        log.append(MoveType.FLAG, 1, 1, 1500);
+        log.setSize(Integer.MAX_VALUE);
+        assertMoves(log, new int[] {0, 9001, 301},
+                new MoveType[] {MoveType.REVEAL, MoveType.REVEAL, MoveType.FLAG},
+                new long[] {0, 1000, 1500});
+
+        log.setSize(0);
+        assertEquals(0, log.size());
+        assertEquals(0, log.getByteSize());
+    }
+}
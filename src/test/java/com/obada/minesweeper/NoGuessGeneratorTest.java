@@ -0,0 +1,69 @@
+package com.obada.minesweeper;
+
+import java.util.SplittableRandom;
+
+import junit.framework.TestCase;
+
+public class NoGuessGeneratorTest extends TestCase {
+    private static void assertSolvable(int width, int height, int mineNumber, Topology topology,
+                                       long seeds, int y, int x) {
+        for(long seed = 0; seed < seeds; ++seed) {
+            var board = new Board(width, height, mineNumber, topology);
+            board.setGenerationMode(GenerationMode.NO_GUESS);
+            board.reset(seed);
+            board.revealClearSection(y, x);
+            assertFalse("seed " + seed, board.isMine(y, x));
+
+            var solver = new Solver(board);
+            solver.rescan();
+            assertTrue("seed " + seed, solver.solve());
+            assertTrue("seed " + seed, board.isWon());
+        }
+    }
+
+    public void testExpertSeedsSolveWithoutGuessing() {
+        assertSolvable(30, 16, 99, Topology.SQUARE, 500, 3, 7);
+    }
+
+    public void testOtherTopologiesSolveWithoutGuessing() {
+        assertSolvable(16, 16, 40, Topology.HEX, 100, 8, 8);
+        assertSolvable(16, 16, 40, Topology.TORUS, 100, 0, 0);
+        assertSolvable(16, 16, 40, Topology.KNIGHT, 100, 8, 8);
+    }
+
+    public void testDensestSupportedBoards() {
+        assertSolvable(9, 9, NoGuessGenerator.maxMines(9, 9, Topology.SQUARE), Topology.SQUARE, 50, 4, 4);
+        assertSolvable(3, 4, NoGuessGenerator.maxMines(3, 4, Topology.SQUARE), Topology.SQUARE, 50, 0, 0);
+    }
+
+    public void testRejectsUnsupportedBoards() {
+        var dense = new Board(9, 9, 21);
+        try {
+            dense.setGenerationMode(GenerationMode.NO_GUESS);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(GenerationMode.CLASSIC, dense.getGenerationMode());
+        }
+        var narrow = new Board(3, 3, 0, Topology.TORUS);
+        try {
+            narrow.setGenerationMode(GenerationMode.NO_GUESS);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(GenerationMode.CLASSIC, narrow.getGenerationMode());
+        }
+    }
+
+    public void testGivesUpOnBoardsThatNeedAGuess() {
+        // far denser than maxMines allows, generated directly
+        var board = new Board(9, 9, 68);
+        board.reset(5);
+        new NoGuessGenerator(board, new SplittableRandom(5)).generate(board.index(4, 4));
+
+        assertEquals(68, board.getMineCounter());
+        for(int y = 3; y <= 5; ++y)
+            for(int x = 3; x <= 5; ++x)
+                assertFalse(board.isMine(y, x));
+        board.revealClearSection(4, 4);
+        assertTrue(board.isOpened(4, 4));
+    }
+}
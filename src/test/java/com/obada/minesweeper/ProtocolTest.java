@@ -0,0 +1,119 @@
+package com.obada.minesweeper;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class ProtocolTest extends TestCase {
+    private static DataInputStream input(byte[] buffer, int length) {
+        return new DataInputStream(new ByteArrayInputStream(buffer, 0, length));
+    }
+
+    public void testVarints() throws IOException {
+        long[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, 0xFFFFFFFFL, Long.MAX_VALUE, -1};
+        int[] sizes = {1, 1, 1, 2, 2, 3, 5, 5, 9, 10};
+        byte[] buffer = new byte[10];
+        for(int k = 0; k < values.length; ++k) {
+            int length = Protocol.writeVarint(buffer, 0, values[k]);
+            assertEquals(Long.toString(values[k]), sizes[k], length);
+            assertEquals(values[k], Protocol.readVarint(input(buffer, length)));
+        }
+    }
+
+    public void testZigzag() {
+        assertEquals(0, Protocol.zigzag(0));
+        assertEquals(1, Protocol.zigzag(-1));
+        assertEquals(2, Protocol.zigzag(1));
+        assertEquals(3, Protocol.zigzag(-2));
+        assertEquals(0xFFFFFFFFL, Protocol.zigzag(Integer.MIN_VALUE));
+        for(int value : new int[] {0, 1, -1, 99, -99, 1 << 20, Integer.MAX_VALUE, Integer.MIN_VALUE})
+            assertEquals(value, Protocol.unzigzag(Protocol.zigzag(value)));
+    }
+
+    private static GameClient.Diff move(GameSession session, int type, int y, int x) throws IOException {
+        int length = session.move(type, y, x);
+        var in = input(session.getReply(), length);
+        assertEquals(Protocol.STATE, in.readUnsignedByte());
+        var diff = GameClient.readDiff(in);
+        assertEquals(0, in.available());
+        return diff;
+    }
+
+    public void testRevealDiffMatchesTheBoard() throws IOException {
+        var session = new GameSession(30, 16, 99, GenerationMode.CLASSIC, 11);
+        var board = new Board(30, 16, 99);
+        board.reset(11);
+        int start = -1;
+        for(int i = 0; i < 30 * 16 && start == -1; ++i)
+            if(board.getNumber(i / 30, i % 30) == 0)
+                start = i;
+
+        var diff = move(session, Protocol.REVEAL, start / 30, start % 30);
+        int revealed = board.revealClearSection(start / 30, start % 30);
+        assertEquals(Protocol.PLAYING, diff.status());
+        assertEquals(99, diff.mineCounter());
+        assertEquals(revealed, diff.size());
+        for(int k = 0; k < diff.size(); ++k) {
+            int position = diff.positions()[k];
+            if(k > 0)
+                assertTrue(position > diff.positions()[k - 1]);
+            assertTrue(board.isOpened(position / 30, position % 30));
+            assertEquals(board.getNumber(position / 30, position % 30), diff.tiles()[k]);
+        }
+
+        // a move that changes nothing has no cells
+        assertEquals(0, move(session, Protocol.REVEAL, start / 30, start % 30).size());
+    }
+
+    public void testFlagDiffs() throws IOException {
+        var session = new GameSession(30, 16, 2, GenerationMode.CLASSIC, 5);
+        var diff = move(session, Protocol.FLAG, 15, 29);
+        assertEquals(1, diff.mineCounter());
+        assertEquals(1, diff.size());
+        assertEquals(15 * 30 + 29, diff.positions()[0]);
+        assertEquals(Protocol.TILE_FLAG, diff.tiles()[0]);
+
+        diff = move(session, Protocol.FLAG, 15, 29);
+        assertEquals(2, diff.mineCounter());
+        assertEquals(Protocol.TILE_CLOSED, diff.tiles()[0]);
+    }
+
+    public void testNegativeMineCounter() throws IOException {
+        byte[] buffer = new byte[32];
+        buffer[0] = (byte) Protocol.LOST;
+        int length = Protocol.writeVarint(buffer, 1, Protocol.zigzag(-28));
+        assertEquals(2, length);
+        length = Protocol.writeVarint(buffer, length, 2);
+        length = Protocol.writeVarint(buffer, length, 300L << 4 | Protocol.TILE_FLAG);
+        length = Protocol.writeVarint(buffer, length, 1L << 4 | Protocol.TILE_MINE);
+
+        var diff = GameClient.readDiff(input(buffer, length));
+        assertEquals(Protocol.LOST, diff.status());
+        assertEquals(-28, diff.mineCounter());
+        assertEquals(2, diff.size());
+        assertEquals(300, diff.positions()[0]);
+        assertEquals(301, diff.positions()[1]);
+        assertEquals(Protocol.TILE_FLAG, diff.tiles()[0]);
+        assertEquals(Protocol.TILE_MINE, diff.tiles()[1]);
+    }
+
+    public void testLossListsEveryMine() throws IOException {
+        var session = new GameSession(9, 9, 10, GenerationMode.CLASSIC, 3);
+        var board = new Board(9, 9, 10);
+        board.reset(3);
+        int mine = 0;
+        while(!board.isMine(mine / 9, mine % 9))
+            mine++;
+
+        var diff = move(session, Protocol.REVEAL, mine / 9, mine % 9);
+        assertEquals(Protocol.LOST, diff.status());
+        assertEquals(10, diff.size());
+        for(int k = 0; k < diff.size(); ++k) {
+            assertEquals(Protocol.TILE_MINE, diff.tiles()[k]);
+            assertTrue(board.isMine(diff.positions()[k] / 9, diff.positions()[k] % 9));
+        }
+        assertEquals(0, move(session, Protocol.REVEAL, 0, 0).size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.obada.minesweeper;
+
+import java.util.SplittableRandom;
+
+import junit.framework.TestCase;
+
+public class ReplayTest extends TestCase {
+    /**
+     * Plays random moves until the game ends and logs them.
+     */
+    private static MoveLog playRandomGame(Board board, SplittableRandom rand) {
+        var log = new MoveLog(board);
+        long time = 0;
+        while(!hasOpenedMine(board) && !board.isWon()) {
+            int y = rand.nextInt(board.getHeight());
+            int x = rand.nextInt(board.getWidth());
+            MoveType type = MoveType.values()[rand.nextInt(3)];
+            time += rand.nextInt(2000);
+            log.append(type, y, x, time);
+            switch (type) {
+                case REVEAL -> board.revealClearSection(y, x);
+                case FLAG -> board.toggleFlagged(y, x);
+                case CHORD -> board.chord(y, x);
+            }
+        }
+        return log;
+    }
+
+    private static boolean hasOpenedMine(Board board) {
+        for(int y = 0; y < board.getHeight(); ++y)
+            for(int x = 0; x < board.getWidth(); ++x)
+                if(board.isOpened(y, x) && board.isMine(y, x))
+                    return true;
+        return false;
+    }
+
+    private static Board playForward(MoveLog log, int moves) {
+        var board = log.newBoard();
+        int[] positions = new int[log.size()];
+        byte[] types = new byte[log.size()];
+        long[] times = new long[log.size()];
+        log.decode(positions, types, times);
+        for(int move = 0; move < moves; ++move) {
+            int y = positions[move] / log.getWidth(), x = positions[move] % log.getWidth();
+            switch (MoveType.values()[types[move]]) {
+                case REVEAL -> board.revealClearSection(y, x);
+                case FLAG -> board.toggleFlagged(y, x);
+                case CHORD -> board.chord(y, x);
+            }
+        }
+        return board;
+    }
+
+    private static void assertSameState(String message, Board expected, Board actual) {
+        for(int y = 0; y < expected.getHeight(); ++y)
+            for(int x = 0; x < expected.getWidth(); ++x) {
+                assertEquals(message, expected.isOpened(y, x), actual.isOpened(y, x));
+                assertEquals(message, expected.isFlagged(y, x), actual.isFlagged(y, x));
+            }
+        assertEquals(message, expected.getMineCounter(), actual.getMineCounter());
+        assertEquals(message, expected.getRevealedCells(), actual.getRevealedCells());
+    }
+
+    public void testSeekMatchesPlayingForward() {
+        var rand = new SplittableRandom(7);
+        for(GenerationMode mode : GenerationMode.values())
+            for(int game = 0; game < 20; ++game) {
+                var board = new Board(16, 16, 30);
+                board.setGenerationMode(mode);
+                board.reset(game);
+                var log = playRandomGame(board, rand);
+                var replay = new Replay(log);
+
+                for(int seek = 0; seek < 30; ++seek) {
+                    int move = rand.nextInt(log.size() + 1);
+                    replay.seek(move);
+                    assertEquals(move, replay.getPosition());
+                    assertSameState(mode + " game " + game + " move " + move, playForward(log, move), replay.getBoard());
+                }
+                replay.seek(0);
+                for(int move = 1; replay.step(); ++move)
+                    assertSameState(mode + " game " + game + " step " + move, playForward(log, move), replay.getBoard());
+                assertSameState(mode + " game " + game, board, replay.getBoard());
+            }
+    }
+
+    public void testSeekTime() {
+        var board = new Board(9, 9, 10);
+        board.reset(3);
+        var log = new MoveLog(board);
+        log.append(MoveType.FLAG, 0, 0, 100);
+        log.append(MoveType.FLAG, 0, 1, 200);
+        log.append(MoveType.FLAG, 0, 2, 200);
+        log.append(MoveType.FLAG, 0, 3, 400);
+        var replay = new Replay(log);
+
+        replay.seekTime(50);
+        assertEquals(0, replay.getPosition());
+        replay.seekTime(200);
+        assertEquals(3, replay.getPosition());
+        assertEquals(200, replay.getTime());
+        replay.seekTime(1000);
+        assertEquals(4, replay.getPosition());
+        assertEquals(400, replay.getDuration());
+    }
+}
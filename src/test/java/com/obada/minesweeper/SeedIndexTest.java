@@ -0,0 +1,97 @@
+package com.obada.minesweeper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.OptionalInt;
+
+import junit.framework.TestCase;
+
+public class SeedIndexTest extends TestCase {
+    private static final long FIRST_SEED = 1000;
+    // 3BV, openings, isolated numbers and guesses of the seeds from FIRST_SEED on
+    private static final int[][] ANALYSES = {
+            {170, 12, 158, 0},
+            {120, 20, 100, 3},
+            {70000, 1, 69999, 0},
+            {150, 15, 135, 1},
+            {120, 10, 110, 0},
+            {200, 8, 192, 7},
+    };
+
+    private Path path;
+    private SeedIndex index;
+
+    @Override
+    protected void setUp() throws IOException {
+        long[] packed = new long[ANALYSES.length];
+        for(int k = 0; k < packed.length; ++k)
+            packed[k] = new BoardAnalyzer.Analysis(ANALYSES[k][0], ANALYSES[k][1], ANALYSES[k][2], ANALYSES[k][3]).pack();
+        path = Files.createTempFile("seeds", ".msix");
+        SeedIndex.write(path, 30, 16, 99, GenerationMode.NO_GUESS, FIRST_SEED, packed);
+        index = SeedIndex.open(path);
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    public void testHeader() {
+        assertEquals(30, index.getWidth());
+        assertEquals(16, index.getHeight());
+        assertEquals(99, index.getMineNumber());
+        assertEquals(GenerationMode.NO_GUESS, index.getGenerationMode());
+        assertEquals(ANALYSES.length, index.size());
+    }
+
+    public void testRecordsSortedBy3BVThenSeed() {
+        long[] seeds = {1001, 1004, 1003, 1000, 1005, 1002};
+        for(int record = 0; record < seeds.length; ++record)
+            assertEquals(seeds[record], index.getSeed(record));
+
+        var saturated = index.getAnalysis(seeds.length - 1);
+        assertEquals(0xFFFF, saturated.threeBV());
+        assertEquals(0xFFFF, saturated.isolatedNumbers());
+        assertEquals(new BoardAnalyzer.Analysis(150, 15, 135, 1), index.getAnalysis(2));
+    }
+
+    public void testPick() {
+        for(long day = 0; day < 20; ++day) {
+            OptionalInt record = index.pick(120, 170, 2, day);
+            assertTrue(record.isPresent());
+            var analysis = index.getAnalysis(record.getAsInt());
+            assertTrue(analysis.threeBV() >= 120 && analysis.threeBV() <= 170);
+            assertTrue(analysis.guesses() <= 2);
+            assertEquals(record, index.pick(120, 170, 2, day));
+        }
+
+        assertEquals(1002, index.getSeed(index.pick(60000, Integer.MAX_VALUE, 0, 5).getAsInt()));
+        assertEquals(6, countPicked(0, Integer.MAX_VALUE, Integer.MAX_VALUE));
+        assertTrue(index.pick(171, 199, 10, 0).isEmpty());
+        assertTrue(index.pick(200, 200, 6, 0).isEmpty());
+    }
+
+    private int countPicked(int min3BV, int max3BV, int maxGuesses) {
+        boolean[] seen = new boolean[index.size()];
+        int count = 0;
+        for(long day = 0; day < 1000; ++day) {
+            int record = index.pick(min3BV, max3BV, maxGuesses, day).getAsInt();
+            if(!seen[record]) {
+                seen[record] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void testOpenRejectsOtherFiles() throws IOException {
+        Files.write(path, new byte[64]);
+        try {
+            SeedIndex.open(path);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.obada.minesweeper;
+
+import junit.framework.TestCase;
+
+public class UndoHistoryTest extends TestCase {
+    private Board board;
+    private UndoHistory history;
+    private int moves;
+
+    @Override
+    protected void setUp() {
+        board = new Board(16, 16, 40);
+        board.reset(9);
+        history = new UndoHistory();
+        board.setHistory(history);
+    }
+
+    /**
+     * Opened and flagged cells and the counters of the board, to compare
+     * states.
+     */
+    private String state() {
+        var text = new StringBuilder();
+        for(int y = 0; y < board.getHeight(); ++y)
+            for(int x = 0; x < board.getWidth(); ++x)
+                text.append(board.isFlagged(y, x) ? 'F' : board.isOpened(y, x) ? 'O' : '.');
+        return text.append(' ').append(board.getMineCounter()).append(' ').append(board.getRevealedCells()).toString();
+    }
+
+    private int safeCell(int from) {
+        int i = from;
+        while(board.isMine(i / 16, i % 16) || board.isOpened(i / 16, i % 16))
+            i++;
+        return i;
+    }
+
+    /**
+     * @return the n-th mine, which no flood opens, to flag.
+     */
+    private int mine(int n) {
+        int i = 0;
+        for(int seen = -1; ; ++i)
+            if(board.isMine(i / 16, i % 16) && ++seen == n)
+                return i;
+    }
+
+    private void reveal(int cell) {
+        history.begin(moves++, moves * 100L);
+        board.revealClearSection(cell / 16, cell % 16);
+    }
+
+    private void flag(int cell) {
+        history.begin(moves++, moves * 100L);
+        board.toggleFlagged(cell / 16, cell % 16);
+    }
+
+    public void testUndoAndRedo() {
+        String[] states = new String[4];
+        states[0] = state();
+        reveal(safeCell(0));
+        states[1] = state();
+        flag(mine(0));
+        states[2] = state();
+        reveal(safeCell(100));
+        states[3] = state();
+
+        for(int step = 2; step >= 0; --step) {
+            assertEquals(step, history.undo(board));
+            assertEquals(states[step], state());
+            assertEquals(step, history.getMoveCount(step));
+        }
+        assertEquals(-1, history.undo(board));
+
+        for(int step = 0; step < 3; ++step) {
+            assertEquals(step, history.redo(board));
+            assertEquals(states[step + 1], state());
+            assertFalse(history.hasOpenedMine());
+        }
+        assertEquals(-1, history.redo(board));
+        assertEquals(200, history.getTimeMillis(1));
+        assertEquals(2, history.getMoveCountAfter(1));
+        assertEquals(Integer.MAX_VALUE, history.getMoveCountAfter(2));
+    }
+
+    public void testNewStepDropsUndoneSteps() {
+        reveal(safeCell(0));
+        String afterFirst = state();
+        flag(mine(0));
+        flag(mine(1));
+        reveal(safeCell(100));
+
+        history.undo(board);
+        history.undo(board);
+        history.undo(board);
+        assertEquals(afterFirst, state());
+
+        // a different move from here on cuts off the three undone steps
+        flag(mine(2));
+        String branched = state();
+        assertEquals(-1, history.redo(board));
+        assertEquals(2, history.size());
+
+        assertEquals(1, history.undo(board));
+        assertEquals(afterFirst, state());
+        assertEquals(1, history.redo(board));
+        assertEquals(branched, state());
+        assertFalse(board.isFlagged(mine(0) / 16, mine(0) % 16));
+        assertFalse(board.isFlagged(mine(1) / 16, mine(1) % 16));
+
+        assertEquals(1, history.undo(board));
+        assertEquals(0, history.undo(board));
+        assertEquals(0, board.getRevealedCells());
+        assertEquals(board.getMineNumber(), board.getMineCounter());
+    }
+
+    public void testStepsThatChangeNothingAreMerged() {
+        int cell = safeCell(0);
+        reveal(cell);
+        String opened = state();
+        reveal(cell);
+        reveal(cell);
+        assertEquals(2, history.size());
+
+        // the trailing empty step is dropped by the first undo
+        assertEquals(0, history.undo(board));
+        assertEquals(1, history.size());
+        assertEquals(0, history.redo(board));
+        assertEquals(opened, state());
+    }
+
+    public void testRedoReportsOpenedMines() {
+        int mine = mine(0);
+        reveal(mine);
+        history.undo(board);
+        assertFalse(board.isOpened(mine / 16, mine % 16));
+        history.redo(board);
+        assertTrue(history.hasOpenedMine());
+        assertTrue(board.isOpened(mine / 16, mine % 16));
+    }
+}